@@ -0,0 +1,35 @@
+package com.github.helendigger.taskapi.benchmark;
+
+import com.github.helendigger.taskapi.dto.TaskDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generated tasks shared by the benchmarks, descriptions have the maximum length
+ */
+public final class BenchmarkTasks {
+    private static final String DESCRIPTION = "d".repeat(1024);
+
+    private BenchmarkTasks() {
+    }
+
+    public static TaskDTO task(long number) {
+        return TaskDTO.builder()
+                .title("Benchmark task " + number)
+                .description(DESCRIPTION)
+                .dueDate(LocalDateTime.now().plusDays(1 + number % 30))
+                .completed(number % 3 == 0).build();
+    }
+
+    public static List<TaskDTO> tasks(int count) {
+        var tasks = new ArrayList<TaskDTO>(count);
+        for (int i = 0; i < count; i++) {
+            var task = task(i);
+            task.setId(i + 1L);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
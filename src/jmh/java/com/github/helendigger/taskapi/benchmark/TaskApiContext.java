@@ -0,0 +1,66 @@
+package com.github.helendigger.taskapi.benchmark;
+
+import com.github.helendigger.taskapi.TaskApiApplication;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.service.TaskService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application context running against an in-memory H2 database seeded with generated tasks.
+ * The database can be replaced with system properties, e.g. -Dspring.datasource.url=jdbc:postgresql://...
+ */
+public final class TaskApiContext implements AutoCloseable {
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private final ConfigurableApplicationContext context;
+    private final List<Long> ids = new ArrayList<>();
+
+    public TaskApiContext(WebApplicationType webApplicationType, int taskCount, String... profiles) {
+        context = new SpringApplicationBuilder(TaskApiApplication.class)
+                .web(webApplicationType)
+                .profiles(profiles)
+                .properties("spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.docker.compose.enabled=false",
+                        "server.port=0",
+                        "task.admission.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        var taskService = context.getBean(TaskService.class);
+        for (int seeded = 0; seeded < taskCount; seeded += SEED_BATCH_SIZE) {
+            var batch = new ArrayList<TaskDTO>();
+            for (int i = seeded; i < Math.min(taskCount, seeded + SEED_BATCH_SIZE); i++) {
+                batch.add(BenchmarkTasks.task(i));
+            }
+            ids.addAll(taskService.createTasks(batch));
+        }
+    }
+
+    public int port() {
+        return Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+    public ConfigurableApplicationContext context() {
+        return context;
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public List<Long> ids() {
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.helendigger.taskapi.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test of the read endpoints, every client sends its next request as soon as the previous returns.
+ * Run it once with the default profile and once with virtual-threads to compare throughput and tail latency:
+ * ./gradlew loadTest -PloadTestArgs="200 30 virtual-threads"
+ * Arguments: concurrent clients, duration in seconds, spring profiles (comma separated, optional)
+ */
+public final class TaskApiLoadTest {
+    private static final int TASK_COUNT = 10000;
+
+    private TaskApiLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String[] profiles = args.length > 2 ? args[2].split(",") : new String[0];
+
+        try (var context = new TaskApiContext(WebApplicationType.SERVLET, TASK_COUNT, profiles)) {
+            var base = "http://localhost:" + context.port();
+            var ids = context.ids();
+            var httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            var errors = new LongAdder();
+
+            run(httpClient, base, ids, clients, Duration.ofSeconds(Math.max(1, seconds / 5)), errors);
+            errors.reset();
+            long started = System.nanoTime();
+            var latencies = run(httpClient, base, ids, clients, Duration.ofSeconds(seconds), errors);
+            double elapsed = (System.nanoTime() - started) / 1e9;
+
+            Arrays.sort(latencies);
+            System.out.printf("profiles=%s clients=%d requests=%d errors=%d throughput=%.1f req/s%n",
+                    String.join(",", profiles), clients, latencies.length, errors.sum(), latencies.length / elapsed);
+            System.out.printf("p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                    percentile(latencies, 0.50), percentile(latencies, 0.95),
+                    percentile(latencies, 0.99), percentile(latencies, 1.0));
+        }
+    }
+
+    private static long[] run(HttpClient httpClient, String base, List<Long> ids, int clients, Duration duration,
+                              LongAdder errors) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            var futures = new ArrayList<Future<long[]>>();
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> client(httpClient, base, ids, deadline, errors)));
+            }
+            var all = new ArrayList<long[]>();
+            int total = 0;
+            for (var future : futures) {
+                var latencies = future.get();
+                all.add(latencies);
+                total += latencies.length;
+            }
+            long[] merged = new long[total];
+            int position = 0;
+            for (var latencies : all) {
+                System.arraycopy(latencies, 0, merged, position, latencies.length);
+                position += latencies.length;
+            }
+            return merged;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long[] client(HttpClient httpClient, String base, List<Long> ids, long deadline, LongAdder errors) {
+        long[] latencies = new long[1024];
+        int count = 0;
+        var random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            var id = ids.get(random.nextInt(ids.size()));
+            var uri = random.nextInt(10) == 0 ? base + "/tasks?after=" + id : base + "/tasks/" + id;
+            var request = HttpRequest.newBuilder(URI.create(uri)).GET().build();
+            long started = System.nanoTime();
+            try {
+                var response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    errors.increment();
+                }
+            } catch (Exception e) {
+                errors.increment();
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - started;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.helendigger.taskapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.helendigger.taskapi.benchmark.BenchmarkTasks;
+import com.github.helendigger.taskapi.benchmark.TaskApiContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full request path of every task endpoint through MockMvc: filters, argument resolution,
+ * validation, service, database and response serialization
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskEndpointBenchmark {
+    @Param({"10000"})
+    public int taskCount;
+
+    private TaskApiContext context;
+    private MockMvc mockMvc;
+    private String createBody;
+    private String updateBody;
+    private long existingId;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new TaskApiContext(WebApplicationType.SERVLET, taskCount);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context.context()).build();
+        var mapper = context.bean(ObjectMapper.class);
+        createBody = mapper.writeValueAsString(BenchmarkTasks.task(1));
+        updateBody = mapper.writeValueAsString(BenchmarkTasks.task(2));
+        existingId = context.ids().get(taskCount / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getTasksPage() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/tasks").param("after", Long.toString(existingId)))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getTaskById() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.get("/tasks/" + existingId)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult updateTask() throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.put("/tasks/" + existingId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(updateBody)).andReturn();
+    }
+
+    /**
+     * Creates a task and deletes it again, so the table size stays the same
+     */
+    @Benchmark
+    public MvcResult createAndDeleteTask() throws Exception {
+        var created = mockMvc.perform(MockMvcRequestBuilders.post("/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(createBody)).andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.delete(created.getResponse().getHeader("Location"))
+                .contentType(MediaType.APPLICATION_JSON)).andReturn();
+    }
+}
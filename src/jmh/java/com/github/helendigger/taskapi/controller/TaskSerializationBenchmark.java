@@ -0,0 +1,95 @@
+package com.github.helendigger.taskapi.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.helendigger.taskapi.benchmark.BenchmarkTasks;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.Tasks;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of the response bodies with the object mapper configured by spring boot,
+ * in JSON and in the binary formats served on request. Body sizes, plain and gzipped, are logged on setup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskSerializationBenchmark {
+    private static final Logger log = LoggerFactory.getLogger(TaskSerializationBenchmark.class);
+
+    @Param({"1", "100", "1000"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectWriter tasksWriter;
+    private ObjectWriter taskWriter;
+    private Tasks tasks;
+    private TaskDTO task;
+
+    @Setup
+    public void setUp() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(JacksonAutoConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run()) {
+            var mapper = switch (format) {
+                case "cbor" -> context.getBean(ObjectMapper.class).copyWith(new CBORFactory());
+                case "smile" -> context.getBean(ObjectMapper.class).copyWith(new SmileFactory());
+                default -> context.getBean(ObjectMapper.class);
+            };
+            tasksWriter = mapper.writerFor(Tasks.class);
+            taskWriter = mapper.writerFor(TaskDTO.class);
+        }
+        tasks = new Tasks(BenchmarkTasks.tasks(size), (long) size);
+        task = tasks.tasks().get(0);
+        try {
+            log.info("{}, {} tasks: {} bytes, {} bytes gzipped", format, size,
+                    serializeTasks().length, serializeTasksGzipped().length);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeTasks() throws IOException {
+        return tasksWriter.writeValueAsBytes(tasks);
+    }
+
+    @Benchmark
+    public byte[] serializeTask() throws IOException {
+        return taskWriter.writeValueAsBytes(task);
+    }
+
+    /**
+     * Serialization and compression as done for bodies over the compression threshold
+     */
+    @Benchmark
+    public byte[] serializeTasksGzipped() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(bytes)) {
+            tasksWriter.writeValue(gzip, tasks);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.benchmark.BenchmarkTasks;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO conversions done on every read and write
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TaskConversionBenchmark {
+    private TaskDTO taskDTO;
+    private Task task;
+
+    @Setup
+    public void setUp() {
+        taskDTO = BenchmarkTasks.task(1);
+        task = TaskService.convertFromTaskDTO(taskDTO);
+        task.setId(1L);
+    }
+
+    @Benchmark
+    public TaskDTO convertFromTask() {
+        return TaskService.convertFromTask(task);
+    }
+
+    @Benchmark
+    public Task convertFromTaskDTO() {
+        return TaskService.convertFromTaskDTO(taskDTO);
+    }
+}
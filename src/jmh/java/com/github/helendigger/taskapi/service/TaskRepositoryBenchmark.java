@@ -0,0 +1,119 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.benchmark.BenchmarkTasks;
+import com.github.helendigger.taskapi.benchmark.TaskApiContext;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Database access paths of the task service against embedded H2, the gc profiler reports allocations per call
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskRepositoryBenchmark {
+    private static final int INSERT_BATCH_SIZE = 100;
+
+    @Param({"10000"})
+    public int taskCount;
+
+    private TaskApiContext context;
+    private TaskRepository taskRepository;
+    private TaskService taskService;
+    private List<TaskDTO> insertBatch;
+    private final List<Long> inserted = new ArrayList<>();
+    private long middleId;
+
+    @Setup
+    public void setUp() {
+        context = new TaskApiContext(WebApplicationType.NONE, taskCount);
+        taskRepository = context.bean(TaskRepository.class);
+        taskService = context.bean(TaskService.class);
+        middleId = context.ids().get(taskCount / 2);
+        insertBatch = new ArrayList<>();
+        for (int i = 0; i < INSERT_BATCH_SIZE; i++) {
+            insertBatch.add(BenchmarkTasks.task(i));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void removeInserted() {
+        if (!inserted.isEmpty()) {
+            taskService.removeByIds(inserted);
+            inserted.clear();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<TaskDTO> firstPageFromDatabase() {
+        return taskRepository.findPage(0L, TaskFilter.NONE, TaskService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<TaskDTO> middlePageFromDatabase() {
+        return taskRepository.findPage(middleId, TaskFilter.NONE, TaskService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<TaskDTO> filteredPageFromDatabase() {
+        return taskRepository.findPage(0L, new TaskFilter(false, null, null), TaskService.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Task read as a managed entity and converted, the way reads went before the DTO projections,
+     * compare its gc.alloc.rate.norm with taskById
+     */
+    @Benchmark
+    public Optional<TaskDTO> entityById() {
+        return taskRepository.findById(middleId).map(TaskService::convertFromTask);
+    }
+
+    @Benchmark
+    public Optional<TaskDTO> taskById() {
+        return taskRepository.findTaskById(middleId);
+    }
+
+    @Benchmark
+    public Tasks middlePageFromService() {
+        return taskService.getTasks(TaskFilter.NONE, middleId, TaskService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void exportAll(Blackhole blackhole) {
+        taskService.exportTasks(blackhole::consume);
+    }
+
+    /**
+     * Throughput of batched inserts, the score divided by the batch size is the time of one insert
+     */
+    @Benchmark
+    public List<Long> insertBatch() {
+        var ids = taskService.createTasks(insertBatch);
+        inserted.addAll(ids);
+        return ids;
+    }
+}
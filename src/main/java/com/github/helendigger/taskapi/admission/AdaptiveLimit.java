@@ -0,0 +1,96 @@
+package com.github.helendigger.taskapi.admission;
+
+import com.github.helendigger.taskapi.configuration.TaskAdmissionProperties;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit of one route class adapted to its latency, gradient style.
+ * Latencies are collected in windows of a fixed number of requests, the median of a window is the current latency
+ * and an exponential average of the window medians is the baseline. Every window the limit moves towards
+ * limit * gradient + sqrt(limit), where the gradient is tolerance * baseline / current latency capped to 1,
+ * so the limit grows by the queue allowance while latency stays near the baseline and shrinks when requests queue.
+ * The baseline follows a lasting change of the latency, a slower service doesn't stay throttled forever.
+ * An outlier moves the median of its window only if most of the window is slow
+ */
+public class AdaptiveLimit {
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int min;
+    private final int max;
+    private final double tolerance;
+    private final double smoothing;
+    private final double baselineWeight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final long[] window;
+    private volatile int limit;
+    private double exactLimit;
+    private int samples;
+    private int maxConcurrent;
+    private double baseline;
+
+    public AdaptiveLimit(TaskAdmissionProperties.Limit properties) {
+        this.min = properties.min();
+        this.max = properties.max();
+        this.tolerance = properties.tolerance();
+        this.smoothing = properties.smoothing();
+        this.baselineWeight = 2.0 / (properties.baselineWindows() + 1);
+        this.window = new long[Math.max(1, properties.window())];
+        this.limit = Math.max(min, Math.min(max, properties.initial()));
+        this.exactLimit = limit;
+    }
+
+    /**
+     * Take a slot if fewer requests than the limit are in flight
+     * @return true if the request is admitted and must call release
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give the slot back and adapt the limit once the window of latencies is full
+     * @param startNanos time the request was admitted
+     * @param endNanos time the request finished
+     */
+    public void release(long startNanos, long endNanos) {
+        int concurrent = inFlight.getAndDecrement();
+        synchronized (this) {
+            window[samples++] = endNanos - startNanos;
+            maxConcurrent = Math.max(maxConcurrent, concurrent);
+            if (samples < window.length) {
+                return;
+            }
+            Arrays.sort(window);
+            double latency = Math.max(1, window[window.length / 2]);
+            baseline = baseline == 0 ? latency : baseline + (latency - baseline) * baselineWeight;
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * baseline / latency));
+            double target = exactLimit * gradient + Math.sqrt(exactLimit);
+            if (maxConcurrent * 2 < exactLimit) {
+                // grow only while the limit is actually used, an idle service keeps its limit
+                target = Math.min(target, exactLimit);
+            }
+            exactLimit = Math.max(min, Math.min(max, exactLimit + (target - exactLimit) * smoothing));
+            limit = (int) exactLimit;
+            samples = 0;
+            maxConcurrent = 0;
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+}
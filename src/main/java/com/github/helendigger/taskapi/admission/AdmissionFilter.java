@@ -0,0 +1,145 @@
+package com.github.helendigger.taskapi.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.helendigger.taskapi.configuration.TaskAdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control of the task endpoints. A client over its request rate gets 429,
+ * a request over the concurrency limit of its route class gets 503, both right away and with Retry-After,
+ * so requests don't queue in the server while the database is slow.
+ * Route classes have their own limits, as a search and a read by id have very different latencies:
+ * reads of single tasks, lists and search, writes of single tasks and bulk writes.
+ * Clients are told apart by remote address, the client header is honored only from trusted proxies.
+ * Long-lived streams are not limited here, they have their own bounds
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    private static final Set<String> STREAMING_PATHS = Set.of("/tasks/stream", "/tasks/export");
+    private static final Set<String> LIST_PATHS = Set.of("/tasks", "/tasks/due", "/tasks/stats", "/tasks/changes");
+    private static final Set<String> BULK_PATHS = Set.of("/tasks/batch", "/tasks/complete", "/tasks/reopen",
+            "/tasks/postpone");
+
+    private final TaskAdmissionProperties properties;
+    private final ClientIdentity clientIdentity;
+    private final Map<String, AdaptiveLimit> limits;
+    private final Cache<String, TokenBucket> clients;
+    private final LongSupplier nanoTime;
+    private final Counter rateLimited;
+    private final Counter readsShed;
+    private final Counter writesShed;
+
+    public AdmissionFilter(TaskAdmissionProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionFilter(TaskAdmissionProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.clientIdentity = new ClientIdentity(properties);
+        this.limits = Map.of(
+                "read.item", new AdaptiveLimit(properties.reads()),
+                "read.list", new AdaptiveLimit(properties.reads()),
+                "read.search", new AdaptiveLimit(properties.reads()),
+                "write.item", new AdaptiveLimit(properties.writes()),
+                "write.bulk", new AdaptiveLimit(properties.writes()));
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(properties.clients().maxClients())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.nanoTime = nanoTime;
+        this.rateLimited = rejected(meterRegistry, "client", "rate");
+        this.readsShed = rejected(meterRegistry, "read", "limit");
+        this.writesShed = rejected(meterRegistry, "write", "limit");
+        limits.forEach((route, limit) -> limitGauge(meterRegistry, route, limit));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.enabled() || STREAMING_PATHS.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = nanoTime.getAsLong();
+        var client = clientIdentity.of(request);
+        var clientProperties = properties.clients();
+        long wait = clients.get(client, key -> new TokenBucket(clientProperties.rate(), clientProperties.burst(), now))
+                .tryTake(now);
+        if (wait > 0) {
+            rateLimited.increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, wait, "Too many requests from the client");
+            return;
+        }
+        boolean isRead = READ_METHODS.contains(request.getMethod());
+        var limit = limits.get(routeClass(isRead, request.getRequestURI()));
+        if (!limit.tryAcquire()) {
+            (isRead ? readsShed : writesShed).increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Server is overloaded");
+            return;
+        }
+        long start = nanoTime.getAsLong();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.release(start, nanoTime.getAsLong());
+        }
+    }
+
+    static String routeClass(boolean isRead, String path) {
+        if (!isRead) {
+            return BULK_PATHS.contains(path) ? "write.bulk" : "write.item";
+        }
+        if ("/tasks/search".equals(path)) {
+            return "read.search";
+        }
+        return LIST_PATHS.contains(path) ? "read.list" : "read.item";
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long waitNanos, String message)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String kind, String reason) {
+        return Counter.builder("task.admission.rejected")
+                .description("Requests rejected by the admission control")
+                .tag("kind", kind)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static void limitGauge(MeterRegistry meterRegistry, String route, AdaptiveLimit limit) {
+        Gauge.builder("task.admission.limit", limit, AdaptiveLimit::limit)
+                .description("Current concurrency limit")
+                .tag("route", route)
+                .register(meterRegistry);
+        Gauge.builder("task.admission.in.flight", limit, AdaptiveLimit::inFlight)
+                .description("Requests being served")
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+}
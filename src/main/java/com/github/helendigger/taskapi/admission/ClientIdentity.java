@@ -0,0 +1,33 @@
+package com.github.helendigger.taskapi.admission;
+
+import com.github.helendigger.taskapi.configuration.TaskAdmissionProperties;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Identity of the client sending a request, its remote address.
+ * The client header is honored only from trusted proxies, so a client can't pass itself off as another one
+ */
+public class ClientIdentity {
+    private final String clientHeader;
+    private final Set<String> trustedProxies;
+
+    public ClientIdentity(TaskAdmissionProperties properties) {
+        this(properties.clientHeader(), properties.trustedProxies());
+    }
+
+    public ClientIdentity(String clientHeader, Set<String> trustedProxies) {
+        this.clientHeader = clientHeader;
+        this.trustedProxies = trustedProxies;
+    }
+
+    public String of(HttpServletRequest request) {
+        var address = request.getRemoteAddr();
+        if (!trustedProxies.contains(address)) {
+            return address;
+        }
+        return Optional.ofNullable(request.getHeader(clientHeader)).orElse(address);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.helendigger.taskapi.admission;
+
+/**
+ * Request rate limit of one client, tokens are refilled at a fixed rate up to the burst size
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final int burst;
+    private double tokens;
+    private long refilled;
+
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.tokensPerNano = ratePerSecond / 1e9;
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilled = nowNanos;
+    }
+
+    /**
+     * Take one token
+     * @param nowNanos current time
+     * @return 0 if a token was taken, otherwise nanoseconds until the next token
+     */
+    public synchronized long tryTake(long nowNanos) {
+        tokens = Math.min(burst, tokens + (nowNanos - refilled) * tokensPerNano);
+        refilled = nowNanos;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerNano);
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.helendigger.taskapi.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Channel telling the other nodes which cache entries are no longer valid.
+ * A node doesn't receive its own invalidations
+ */
+public interface CacheInvalidationBus {
+    /**
+     * Tell the other nodes the entry has changed
+     * @param cacheName name of the cache
+     * @param key key of the entry or null if the whole cache is cleared
+     */
+    void publish(String cacheName, String key);
+
+    /**
+     * Receive invalidations sent by the other nodes
+     * @param cacheName name of the cache
+     * @param listener called with the key of the entry or null if the whole cache is cleared
+     */
+    void subscribe(String cacheName, Consumer<String> listener);
+}
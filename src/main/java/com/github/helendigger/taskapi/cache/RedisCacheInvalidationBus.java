@@ -0,0 +1,59 @@
+package com.github.helendigger.taskapi.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Invalidations sent over redis pub/sub as lines of the sending node, the cache name and the key.
+ * Pub/sub doesn't keep messages, a node that is disconnected misses them, so local entries must expire on their own
+ */
+@Slf4j
+public class RedisCacheInvalidationBus implements CacheInvalidationBus, MessageListener {
+    private static final String SEPARATOR = "\n";
+
+    private final String node = UUID.randomUUID().toString();
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate, String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        redisTemplate.convertAndSend(channel, node + SEPARATOR + cacheName + (key == null ? "" : SEPARATOR + key));
+    }
+
+    @Override
+    public void subscribe(String cacheName, Consumer<String> listener) {
+        listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        var parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+        if (parts.length < 2 || node.equals(parts[0])) {
+            return;
+        }
+        String key = parts.length == 3 ? parts[2] : null;
+        for (var listener : listeners.getOrDefault(parts[1], List.of())) {
+            try {
+                listener.accept(key);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply invalidation of {} in cache {}", key, parts[1], e);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.github.helendigger.taskapi.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Local cache in front of a cache shared by all nodes.
+ * Reads try the local cache first, then the shared one, a shared hit is copied to the local cache.
+ * Evictions go to both and are sent to the other nodes, which drop their local copies.
+ * A node that read the database before a write committed may put the old value after the eviction of the write,
+ * so every eviction is repeated after a delay, and a put racing both evictions lives until the shared entry expires.
+ * The shared cache being unavailable is a miss, requests are served from the database instead of failing.
+ * Keys are kept as strings, so the key of an invalidation received from another node matches the local one
+ */
+@Slf4j
+public class TwoLevelCache implements Cache {
+    private final Cache local;
+    private final Cache shared;
+    private final CacheInvalidationBus bus;
+    private final ScheduledExecutorService scheduler;
+    private final Duration evictAgainAfter;
+
+    public TwoLevelCache(Cache local, Cache shared, CacheInvalidationBus bus,
+                         ScheduledExecutorService scheduler, Duration evictAgainAfter) {
+        this.local = local;
+        this.shared = shared;
+        this.bus = bus;
+        this.scheduler = scheduler;
+        this.evictAgainAfter = evictAgainAfter;
+        bus.subscribe(getName(), key -> {
+            if (key == null) {
+                local.clear();
+            } else {
+                local.evict(key);
+            }
+        });
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    /**
+     * @return native cache of the local level
+     */
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        var localKey = key.toString();
+        var found = local.get(localKey);
+        if (found != null) {
+            return found;
+        }
+        found = onShared(() -> shared.get(localKey), null);
+        if (found != null) {
+            local.put(localKey, found.get());
+        }
+        return found;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        var found = get(key);
+        var value = found == null ? null : found.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        var localKey = key.toString();
+        return local.get(localKey, () -> {
+            var found = onShared(() -> shared.get(localKey), null);
+            if (found != null) {
+                return (T) found.get();
+            }
+            T loaded = valueLoader.call();
+            onShared(() -> shared.put(localKey, loaded));
+            return loaded;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        var localKey = key.toString();
+        local.put(localKey, value);
+        onShared(() -> shared.put(localKey, value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        var localKey = key.toString();
+        var existing = onShared(() -> shared.putIfAbsent(localKey, value), null);
+        local.put(localKey, existing == null ? value : existing.get());
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        var localKey = key.toString();
+        evictEverywhere(localKey);
+        try {
+            scheduler.schedule(() -> evictEverywhere(localKey), evictAgainAfter.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down, the shared entry still expires on its own
+        }
+    }
+
+    private void evictEverywhere(String localKey) {
+        local.evict(localKey);
+        onShared(() -> shared.evict(localKey));
+        onShared(() -> bus.publish(getName(), localKey));
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        onShared(shared::clear);
+        onShared(() -> bus.publish(getName(), null));
+    }
+
+    private void onShared(Runnable call) {
+        onShared(() -> {
+            call.run();
+            return null;
+        }, null);
+    }
+
+    private <T> T onShared(Supplier<T> call, T fallback) {
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            log.warn("Shared cache {} is unavailable", getName(), e);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.helendigger.taskapi.admission.AdmissionFilter;
+import com.github.helendigger.taskapi.admission.ClientIdentity;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+
+/**
+ * Admission control runs before any other task filter, a rejected request costs no database work
+ */
+@Configuration
+@Profile(ProfileConst.NOT_REACTIVE)
+@EnableConfigurationProperties(TaskAdmissionProperties.class)
+public class AdmissionConfig {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(TaskAdmissionProperties properties,
+                                                                   MeterRegistry meterRegistry) {
+        var registration = new FilterRegistrationBean<>(new AdmissionFilter(properties, meterRegistry));
+        registration.addUrlPatterns("/tasks", "/tasks/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @Bean
+    public ClientIdentity clientIdentity(TaskAdmissionProperties properties) {
+        return new ClientIdentity(properties);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.helendigger.taskapi.constant.CacheConst;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+
+/**
+ * Caffeine backed caches with size and time bounds. Only caches declared here exist,
+ * unknown cache names are rejected instead of silently creating unbounded caches.
+ * Evictions made inside a transaction are applied after commit, so a concurrent read can't cache a stale row again
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties({TaskCacheProperties.class, TaskViewProperties.class})
+public class CacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "task.cache.redis", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public CacheManager cacheManager(TaskCacheProperties properties) {
+        var cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheNames(Collections.emptyList());
+        cacheManager.registerCustomCache(CacheConst.TASK_CACHE_NAME, buildCache(properties.task()));
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    static Cache<Object, Object> buildCache(TaskCacheProperties.Spec spec) {
+        return Caffeine.newBuilder()
+                .maximumSize(spec.maximumSize())
+                .expireAfter(new NegativeAwareExpiry(spec))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Expiry giving cached misses (stored by spring as NullValue) their own shorter time to live
+     */
+    private record NegativeAwareExpiry(TaskCacheProperties.Spec spec) implements Expiry<Object, Object> {
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            return (value instanceof NullValue ? spec.negativeTtl() : spec.ttl()).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.helendigger.taskapi.constant.CacheConst;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.metrics.RequestQueryCountFilter;
+import com.github.helendigger.taskapi.metrics.RequestQueryCounter;
+import com.github.helendigger.taskapi.service.TaskListView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Task specific metrics on top of the ones spring boot publishes for requests, repositories, hibernate,
+ * connection pool and caches
+ */
+@Configuration
+@Profile(ProfileConst.NOT_REACTIVE)
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer requestQueryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new RequestQueryCounter());
+    }
+
+    /**
+     * Applied to the executor of asynchronous requests, so statements of the streamed export count for its request
+     */
+    @Bean
+    public TaskDecorator requestQueryCountPropagator() {
+        return RequestQueryCounter::propagate;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestQueryCountFilter> requestQueryCountFilter(MeterRegistry meterRegistry) {
+        var registration = new FilterRegistrationBean<>(new RequestQueryCountFilter(meterRegistry));
+        registration.addUrlPatterns("/tasks", "/tasks/*");
+        return registration;
+    }
+
+    /**
+     * The list view is published with the same meter names as the caffeine caches
+     */
+    @Bean
+    public MeterBinder taskListViewMetrics(TaskListView taskListView) {
+        return registry -> {
+            Gauge.builder("cache.size", taskListView, TaskListView::size)
+                    .tag("cache", CacheConst.ALL_TASKS_CACHE_NAME)
+                    .description("The number of tasks in the list view")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", taskListView, TaskListView::hits)
+                    .tag("cache", CacheConst.ALL_TASKS_CACHE_NAME)
+                    .tag("result", "hit")
+                    .description("Pages served from the list view")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", taskListView, TaskListView::misses)
+                    .tag("cache", CacheConst.ALL_TASKS_CACHE_NAME)
+                    .tag("result", "miss")
+                    .description("Pages read from the database because the list view was unavailable")
+                    .register(registry);
+        };
+    }
+}
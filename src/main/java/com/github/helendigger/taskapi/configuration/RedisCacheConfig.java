@@ -0,0 +1,114 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.helendigger.taskapi.cache.CacheInvalidationBus;
+import com.github.helendigger.taskapi.cache.RedisCacheInvalidationBus;
+import com.github.helendigger.taskapi.cache.TwoLevelCache;
+import com.github.helendigger.taskapi.constant.CacheConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Task cache shared by all nodes through redis with a bounded local cache in front of it on every node.
+ * Entries evicted by a write are dropped from the local caches of the other nodes over pub/sub.
+ * Only the task cache is shared: list views follow the writes of other nodes through the change log,
+ * while statistics pick them up when they are reconciled and the due window when it is read again
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "task.cache.redis", name = "enabled", havingValue = "true")
+public class RedisCacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(TaskCacheProperties properties, RedisConnectionFactory connectionFactory,
+                                     ObjectMapper objectMapper, CacheInvalidationBus cacheInvalidationBus) {
+        var spec = properties.task();
+        var redis = properties.redis();
+        var localTtl = redis.localTtl();
+        var sharedTtl = min(spec.ttl(), redis.sharedTtl());
+        var local = new CaffeineCache(CacheConst.TASK_CACHE_NAME, CacheConfig.buildCache(new TaskCacheProperties.Spec(
+                spec.maximumSize(), min(spec.ttl(), localTtl), min(spec.negativeTtl(), localTtl))));
+
+        // version and update time are read only for clients, but the cached copy must keep them
+        var serializer = new Jackson2JsonRedisSerializer<>(
+                objectMapper.copy().addMixIn(TaskDTO.class, CachedTaskMixin.class), TaskDTO.class);
+        var sharedCacheManager = RedisCacheManager.builder(connectionFactory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .prefixCacheNameWith(redis.keyPrefix())
+                        .entryTtl((key, value) -> value == null || value instanceof NullValue
+                                ? spec.negativeTtl() : sharedTtl)
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(serializer)))
+                .build();
+
+        // not a bean, a ScheduledExecutorService bean would replace the scheduler of the @Scheduled methods
+        var threadFactory = new CustomizableThreadFactory("task-cache-");
+        threadFactory.setDaemon(true);
+        var cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(new TwoLevelCache(local,
+                sharedCacheManager.getCache(CacheConst.TASK_CACHE_NAME), cacheInvalidationBus,
+                Executors.newSingleThreadScheduledExecutor(threadFactory), redis.evictAgainAfter())));
+        cacheManager.initializeCaches();
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    @Bean
+    public RedisCacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                                          TaskCacheProperties properties) {
+        return new RedisCacheInvalidationBus(redisTemplate, properties.redis().channel());
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                   RedisCacheInvalidationBus cacheInvalidationBus,
+                                                                   TaskCacheProperties properties) {
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(cacheInvalidationBus, new ChannelTopic(properties.redis().channel()));
+        return container;
+    }
+
+    /**
+     * The local level is published with the meters of the other caffeine caches
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public CacheMeterBinderProvider<TwoLevelCache> twoLevelCacheMeterBinderProvider() {
+        return (cache, tags) -> new CaffeineCacheMetrics<>(
+                (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+    }
+
+    private static Duration min(Duration first, Duration second) {
+        return first.compareTo(second) <= 0 ? first : second;
+    }
+
+    private abstract static class CachedTaskMixin {
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        private Long version;
+
+        @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+        private Instant updatedAt;
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.replica.ReadYourWritesFilter;
+import com.github.helendigger.taskapi.replica.ReplicaLagChecker;
+import com.github.helendigger.taskapi.replica.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only transactions go to the read replicas, everything else to the primary.
+ * Replica pools are beans named replica-0, replica-1 and so on, they have the size of the primary pool
+ * and fall back to the primary credentials
+ */
+@Configuration
+@Profile(ProfileConst.NOT_REACTIVE)
+@ConditionalOnProperty(prefix = "task.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(TaskReplicaProperties.class)
+public class ReplicaConfig {
+    private static final String PRIMARY_POOL = "primaryDataSource";
+    private static final String REPLICA_POOL_PREFIX = "replica-";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties,
+                                              ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        var details = connectionDetails.getIfAvailable();
+        if (details == null) {
+            return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+        return DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(details.getJdbcUrl())
+                .username(details.getUsername())
+                .password(details.getPassword())
+                .driverClassName(details.getDriverClassName())
+                .build();
+    }
+
+    /**
+     * Registers a pool bean per configured replica, named like the pool, so the pools are closed with the context
+     * and get the same pool metrics as the primary
+     */
+    @Bean
+    public static BeanDefinitionRegistryPostProcessor replicaPools(Environment environment) {
+        int count = Binder.get(environment)
+                .bind("task.replicas.instances", Bindable.listOf(TaskReplicaProperties.Replica.class))
+                .map(List::size)
+                .orElse(0);
+        return new BeanDefinitionRegistryPostProcessor() {
+            @Override
+            public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+                var beanFactory = (BeanFactory) registry;
+                for (int i = 0; i < count; i++) {
+                    int index = i;
+                    var definition = BeanDefinitionBuilder.genericBeanDefinition(HikariDataSource.class,
+                                    () -> replicaPool(index, beanFactory.getBean(PRIMARY_POOL, HikariDataSource.class),
+                                            beanFactory.getBean(TaskReplicaProperties.class)))
+                            .setDestroyMethodName(AbstractBeanDefinition.INFER_METHOD)
+                            .getBeanDefinition();
+                    registry.registerBeanDefinition(REPLICA_POOL_PREFIX + i, definition);
+                }
+            }
+
+            @Override
+            public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            }
+        };
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                                      TaskReplicaProperties properties, BeanFactory beanFactory) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < properties.instances().size(); i++) {
+            replicas.put(REPLICA_POOL_PREFIX + i, beanFactory.getBean(REPLICA_POOL_PREFIX + i, HikariDataSource.class));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        return ReplicaRoutingDataSource.splitting(primaryDataSource, replicaDataSource);
+    }
+
+    @Bean
+    public ReplicaLagChecker replicaLagChecker(ReplicaRoutingDataSource replicaDataSource,
+                                               TaskReplicaProperties properties, MeterRegistry meterRegistry) {
+        return new ReplicaLagChecker(replicaDataSource, properties, meterRegistry);
+    }
+
+    private static HikariDataSource replicaPool(int index, HikariDataSource primaryDataSource,
+                                                TaskReplicaProperties properties) {
+        var replica = properties.instances().get(index);
+        var pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(replica.url())
+                .username(Optional.ofNullable(replica.username()).orElse(primaryDataSource.getUsername()))
+                .password(Optional.ofNullable(replica.password()).orElse(primaryDataSource.getPassword()))
+                .build();
+        pool.setPoolName(REPLICA_POOL_PREFIX + index);
+        pool.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+        return pool;
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(TaskReplicaProperties properties) {
+        var registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(properties.readYourWrites()));
+        registration.addUrlPatterns("/tasks", "/tasks/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Set;
+
+/**
+ * Settings of the admission control in front of the task endpoints
+ * @param enabled reject requests above the limits, otherwise every request is admitted
+ * @param reads concurrency limit of every read route class: single tasks, lists and search
+ * @param writes concurrency limit of every write route class: single tasks and bulk writes
+ * @param clients request rate allowed to one client
+ * @param clientHeader header identifying the client, honored only from trusted proxies
+ * @param trustedProxies addresses of the proxies allowed to set the client header,
+ *                       requests from anywhere else are told apart by their remote address
+ */
+@ConfigurationProperties("task.admission")
+public record TaskAdmissionProperties(@DefaultValue("false") boolean enabled,
+                                      @DefaultValue Limit reads,
+                                      @DefaultValue Limit writes,
+                                      @DefaultValue Clients clients,
+                                      @DefaultValue("X-Client-Id") String clientHeader,
+                                      @DefaultValue Set<String> trustedProxies) {
+    /**
+     * Adaptive concurrency limit, moved every window towards limit * min(1, tolerance * baseline / latency)
+     * plus sqrt(limit), where latency is the median of the window and baseline the average of past medians
+     * @param initial limit on start
+     * @param min lowest limit
+     * @param max highest limit
+     * @param tolerance latency over the baseline times this ratio is a sign of queueing
+     * @param window requests whose latencies make one window
+     * @param baselineWindows windows the baseline averages over, a lasting latency change is followed within them
+     * @param smoothing share of the way to the new limit taken every window
+     */
+    public record Limit(@DefaultValue("100") int initial,
+                        @DefaultValue("10") int min,
+                        @DefaultValue("1000") int max,
+                        @DefaultValue("2.0") double tolerance,
+                        @DefaultValue("50") int window,
+                        @DefaultValue("20") int baselineWindows,
+                        @DefaultValue("0.2") double smoothing) {
+    }
+
+    /**
+     * Token buckets of the clients
+     * @param rate requests per second of one client
+     * @param burst requests one client can make at once
+     * @param maxClients number of clients whose buckets are kept, the least recently seen ones are dropped
+     */
+    public record Clients(@DefaultValue("50") double rate,
+                          @DefaultValue("100") int burst,
+                          @DefaultValue("100000") long maxClients) {
+    }
+}
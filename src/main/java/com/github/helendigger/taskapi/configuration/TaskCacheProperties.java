@@ -0,0 +1,45 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Bounds of the task caches
+ * @param task cache of single tasks by id
+ * @param redis shared cache behind the local one
+ */
+@ConfigurationProperties("task.cache")
+public record TaskCacheProperties(@DefaultValue Spec task,
+                                  @DefaultValue Redis redis) {
+    /**
+     * Bounds of one cache
+     * @param maximumSize maximum number of entries, least valuable entries are evicted above it
+     * @param ttl time to live of a found value
+     * @param negativeTtl time to live of a remembered miss, kept short so newly created tasks show up quickly
+     */
+    public record Spec(@DefaultValue("10000") long maximumSize,
+                       @DefaultValue("10m") Duration ttl,
+                       @DefaultValue("5s") Duration negativeTtl) {
+    }
+
+    /**
+     * Redis cache shared by all nodes, the local caches become near caches in front of it
+     * @param enabled use the shared cache, otherwise every node caches on its own
+     * @param localTtl longest time to live of a local entry, it bounds staleness when an invalidation is lost
+     * @param keyPrefix prefix of the cache keys in redis
+     * @param channel pub/sub channel invalidations are sent over
+     * @param sharedTtl longest time to live of a shared entry, it bounds staleness when a read of the old state
+     *                  is put after both evictions of a write
+     * @param evictAgainAfter delay of the second eviction of a written entry, it drops the old state put by a read
+     *                        that overlapped the write
+     */
+    public record Redis(@DefaultValue("false") boolean enabled,
+                        @DefaultValue("30s") Duration localTtl,
+                        @DefaultValue("task-api:") String keyPrefix,
+                        @DefaultValue("task-api:cache-invalidation") String channel,
+                        @DefaultValue("1m") Duration sharedTtl,
+                        @DefaultValue("1s") Duration evictAgainAfter) {
+    }
+}
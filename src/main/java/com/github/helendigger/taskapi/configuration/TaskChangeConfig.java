@@ -0,0 +1,50 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.repository.ChangeSequencer;
+import com.github.helendigger.taskapi.repository.PostgresChangeSequencer;
+import com.github.helendigger.taskapi.repository.SettledChangeSequencer;
+import com.github.helendigger.taskapi.repository.TaskChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Settings of the change log, the change stream, the due scheduler, the task statistics, the idempotency keys
+ * and the ingestion queue,
+ * and the scheduler running log sequencing and compaction, stream heartbeats, due checks and statistics reconciliation
+ */
+@Slf4j
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties({TaskChangeProperties.class, TaskStreamProperties.class, TaskDueProperties.class,
+        TaskStatsProperties.class, TaskIdempotencyProperties.class, TaskIngestionProperties.class})
+public class TaskChangeConfig {
+    /**
+     * Change log sequencer for the database in use: transaction ids on PostgreSQL,
+     * the settle time for databases without them, such as H2
+     */
+    @Bean
+    @Profile(ProfileConst.NOT_REACTIVE)
+    public ChangeSequencer changeSequencer(ObjectProvider<DataSource> dataSource,
+                                           TaskChangeRepository taskChangeRepository,
+                                           TaskChangeProperties properties) throws MetaDataAccessException {
+        var source = dataSource.getIfAvailable();
+        if (source != null && "postgresql".equalsIgnoreCase(
+                JdbcUtils.extractDatabaseMetaData(source, DatabaseMetaData::getDatabaseProductName))) {
+            return new PostgresChangeSequencer(new JdbcTemplate(source));
+        }
+        log.info("Database has no transaction ids, task changes are sequenced after {}", properties.settleTime());
+        return new SettledChangeSequencer(taskChangeRepository, properties.settleTime());
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the task change log
+ * @param retention changes older than this are deleted by compaction
+ * @param settleTime on databases without transaction ids changes younger than this aren't sequenced yet,
+ *                   so transactions committing later than the following ones still show up behind the client cursor
+ */
+@ConfigurationProperties("task.changes")
+public record TaskChangeProperties(@DefaultValue("7d") Duration retention,
+                                   @DefaultValue("1s") Duration settleTime) {
+}
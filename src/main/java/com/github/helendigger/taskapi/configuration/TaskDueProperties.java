@@ -0,0 +1,16 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the due task scheduler
+ * @param enabled emit due events and keep upcoming tasks in memory, otherwise due tasks are read from the database
+ * @param window how far ahead open tasks are held in memory, it is refilled when half of it has passed
+ */
+@ConfigurationProperties("task.due")
+public record TaskDueProperties(@DefaultValue("true") boolean enabled,
+                                @DefaultValue("1h") Duration window) {
+}
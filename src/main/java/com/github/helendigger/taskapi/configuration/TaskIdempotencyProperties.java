@@ -0,0 +1,18 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the idempotency keys of the creating requests
+ * @param maxKeys number of remembered keys, the least recently used ones are forgotten above it
+ * @param ttl time a key is remembered for, retries after it create the task again
+ * @param waitTimeout longest time a repeated request waits for the result of the first one
+ */
+@ConfigurationProperties("task.idempotency")
+public record TaskIdempotencyProperties(@DefaultValue("100000") long maxKeys,
+                                        @DefaultValue("24h") Duration ttl,
+                                        @DefaultValue("10s") Duration waitTimeout) {
+}
@@ -0,0 +1,28 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the asynchronous task creation
+ * @param queueCapacity tasks waiting to be written, new tasks are rejected above it
+ * @param batchSize most tasks written in one transaction
+ * @param maxDelay longest time a queued task waits for its batch to fill up
+ * @param statusTtl time the status of a written task is kept for
+ * @param maxStatuses number of kept statuses of written tasks, the oldest ones are dropped above it
+ * @param shutdownTimeout longest time the queue is drained for on shutdown
+ * @param retryBackoff wait before a batch failed by a transient database error is written again, doubled per retry
+ * @param maxRetryBackoff longest wait between two retries of a batch
+ */
+@ConfigurationProperties("task.ingestion")
+public record TaskIngestionProperties(@DefaultValue("10000") int queueCapacity,
+                                      @DefaultValue("500") int batchSize,
+                                      @DefaultValue("200ms") Duration maxDelay,
+                                      @DefaultValue("1h") Duration statusTtl,
+                                      @DefaultValue("100000") long maxStatuses,
+                                      @DefaultValue("30s") Duration shutdownTimeout,
+                                      @DefaultValue("100ms") Duration retryBackoff,
+                                      @DefaultValue("10s") Duration maxRetryBackoff) {
+}
@@ -0,0 +1,33 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings of the read replicas
+ * @param enabled route read-only transactions to the replicas, otherwise everything goes to the primary
+ * @param instances replicas to read from
+ * @param maxLag replicas lagging behind the primary more than this are taken out of rotation
+ * @param readYourWrites reads of a client are sent to the primary for this long after its own successful write
+ * @param lagQuery query returning the replication lag of a replica in seconds
+ */
+@ConfigurationProperties("task.replicas")
+public record TaskReplicaProperties(@DefaultValue("false") boolean enabled,
+                                    @DefaultValue List<Replica> instances,
+                                    @DefaultValue("5s") Duration maxLag,
+                                    @DefaultValue("5s") Duration readYourWrites,
+                                    @DefaultValue("SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn()"
+                                            + " THEN 0 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())"
+                                            + " END") String lagQuery) {
+    /**
+     * Connection settings of one replica
+     * @param url JDBC url
+     * @param username user name, the primary one if absent
+     * @param password password, the primary one if absent
+     */
+    public record Replica(String url, String username, String password) {
+    }
+}
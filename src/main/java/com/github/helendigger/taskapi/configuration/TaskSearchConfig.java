@@ -0,0 +1,39 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import com.github.helendigger.taskapi.search.InMemoryTaskSearch;
+import com.github.helendigger.taskapi.search.PostgresTaskSearch;
+import com.github.helendigger.taskapi.search.TaskSearch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+
+/**
+ * Full-text search implementation for the database in use: PostgreSQL text search,
+ * or an in-memory inverted index for databases without it, such as H2
+ */
+@Slf4j
+@Configuration
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskSearchConfig {
+    @Bean
+    public TaskSearch taskSearch(ObjectProvider<DataSource> dataSource, TaskRepository taskRepository)
+            throws MetaDataAccessException {
+        var source = dataSource.getIfAvailable();
+        if (source != null && "postgresql".equalsIgnoreCase(
+                JdbcUtils.extractDatabaseMetaData(source, DatabaseMetaData::getDatabaseProductName))) {
+            return new PostgresTaskSearch(new NamedParameterJdbcTemplate(source));
+        }
+        log.info("Database has no supported full-text search, tasks are indexed in memory");
+        return new InMemoryTaskSearch(taskRepository);
+    }
+}
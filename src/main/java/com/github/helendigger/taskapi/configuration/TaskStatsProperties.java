@@ -0,0 +1,15 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the task statistics
+ * @param reconcileInterval counters are replaced by counts from the database this often,
+ *                          so changes made by other instances show up after at most this time
+ */
+@ConfigurationProperties("task.stats")
+public record TaskStatsProperties(@DefaultValue("5m") Duration reconcileInterval) {
+}
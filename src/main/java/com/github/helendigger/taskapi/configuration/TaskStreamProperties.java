@@ -0,0 +1,20 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the server-sent events stream of task changes
+ * @param maxSubscribers number of open streams above which new subscribers are rejected
+ * @param bufferSize events queued for one live subscriber, a subscriber that falls further behind is disconnected
+ * @param senderThreads threads writing queued events to the subscribers
+ * @param timeout time after which a stream is closed and the client reconnects with Last-Event-ID
+ */
+@ConfigurationProperties("task.stream")
+public record TaskStreamProperties(@DefaultValue("10000") int maxSubscribers,
+                                   @DefaultValue("256") int bufferSize,
+                                   @DefaultValue("8") int senderThreads,
+                                   @DefaultValue("30m") Duration timeout) {
+}
@@ -0,0 +1,15 @@
+package com.github.helendigger.taskapi.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the in-memory view of the task list
+ * @param enabled serve list reads from memory, otherwise every page is read from the database
+ * @param maxSize number of tasks above which the view is dropped and pages are read from the database,
+ *                the view is loaded again once the table shrinks back below it
+ */
+@ConfigurationProperties("task.view")
+public record TaskViewProperties(@DefaultValue("true") boolean enabled,
+                                 @DefaultValue("20000") int maxSize) {
+}
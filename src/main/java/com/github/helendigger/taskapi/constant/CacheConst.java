@@ -1,6 +1,9 @@
 package com.github.helendigger.taskapi.constant;
 
 public class CacheConst {
+    /**
+     * Name of the in-memory task list view, it is kept up to date by writes instead of being evicted
+     */
     public static final String ALL_TASKS_CACHE_NAME = "all_tasks";
     public static final String TASK_CACHE_NAME = "task";
 }
@@ -0,0 +1,9 @@
+package com.github.helendigger.taskapi.constant;
+
+public class ProfileConst {
+    /**
+     * Serves the task API with WebFlux over R2DBC instead of Spring MVC over JPA
+     */
+    public static final String REACTIVE = "reactive";
+    public static final String NOT_REACTIVE = "!" + REACTIVE;
+}
@@ -1,13 +1,16 @@
 package com.github.helendigger.taskapi.controller;
 
+import com.github.helendigger.taskapi.constant.ProfileConst;
 import io.swagger.v3.oas.annotations.Hidden;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
 
 @RestController
+@Profile(ProfileConst.NOT_REACTIVE)
 @Hidden
 public class SwaggerController {
     @GetMapping("/swagger-ui")
@@ -1,65 +1,286 @@
 package com.github.helendigger.taskapi.controller;
 
-import com.github.helendigger.taskapi.constant.CacheConst;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.helendigger.taskapi.admission.ClientIdentity;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.BatchItemResult;
+import com.github.helendigger.taskapi.dto.BatchResult;
+import com.github.helendigger.taskapi.dto.BulkUpdateResult;
+import com.github.helendigger.taskapi.dto.SearchResults;
+import com.github.helendigger.taskapi.dto.TaskChanges;
 import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
 import com.github.helendigger.taskapi.dto.TaskId;
+import com.github.helendigger.taskapi.dto.TaskSelection;
+import com.github.helendigger.taskapi.dto.TaskStats;
 import com.github.helendigger.taskapi.dto.Tasks;
 import com.github.helendigger.taskapi.dto.validation.TaskCreation;
 import com.github.helendigger.taskapi.dto.validation.TaskEditing;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.exception.IdempotencyKeyReusedException;
+import com.github.helendigger.taskapi.exception.IdempotentRequestInProgressException;
+import com.github.helendigger.taskapi.exception.InvalidTaskRequestException;
+import com.github.helendigger.taskapi.exception.TaskNotFoundException;
+import com.github.helendigger.taskapi.exception.TaskVersionMismatchException;
+import com.github.helendigger.taskapi.service.IdempotencyStore;
+import com.github.helendigger.taskapi.service.TaskChangeService;
 import com.github.helendigger.taskapi.service.TaskService;
+import com.github.helendigger.taskapi.service.TaskStatistics;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.validation.FieldError;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.validation.annotation.Validated;
-import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.method.annotation.MethodArgumentConversionNotSupportedException;
-import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
  * API for task management
  */
 @RestController
+@Profile(ProfileConst.NOT_REACTIVE)
 @AllArgsConstructor
 public class TaskController {
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final int MAX_DUE_WITHIN_DAYS = 366;
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     private final TaskService taskService;
+    private final TaskChangeService taskChangeService;
+    private final IdempotencyStore idempotencyStore;
+    private final ClientIdentity clientIdentity;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
 
     /**
-     * Get all tasks that
-     * @return list of all tasks
+     * Get a page of tasks ordered by id, next page is requested with the cursor of the previous one.
+     * While the task list is held in memory the page is tagged by the list state and the query,
+     * and If-None-Match is answered without building it
+     * @param webRequest request to check the conditional headers of
+     * @param after id of the last task of the previous page
+     * @param limit page size
+     * @param completed completion state filter
+     * @param dueFrom inclusive due date lower bound
+     * @param dueTo exclusive due date upper bound
+     * @return page of tasks and cursor of the next page
      */
-    @Operation(summary = "Get all tasks")
+    @Operation(summary = "Get page of tasks")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "List of all tasks", content = {
+            @ApiResponse(responseCode = "200", description = "Page of tasks", content = {
                     @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = Tasks.class))}),
+            @ApiResponse(responseCode = "304", description = "Not modified since the tag of If-None-Match",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Tasks> getAllTasks(NativeWebRequest webRequest,
+                                             @Parameter(description = "cursor, id of the last task of the previous page")
+                                             @RequestParam(required = false) Long after,
+                                             @Parameter(description = "page size, at most " + TaskService.MAX_PAGE_SIZE)
+                                             @RequestParam(defaultValue = "" + TaskService.DEFAULT_PAGE_SIZE) int limit,
+                                             @Parameter(description = "completion state of the tasks")
+                                             @RequestParam(required = false) Boolean completed,
+                                             @Parameter(description = "inclusive lower bound of the due date")
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueFrom,
+                                             @Parameter(description = "exclusive upper bound of the due date")
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueTo) {
+        var filter = new TaskFilter(completed, dueFrom, dueTo);
+        var tag = taskService.getTasksTag(filter, after, limit)
+                .map(state -> TaskETags.of(state, TaskETags.representation(webRequest)));
+        if (tag.isPresent() && webRequest.checkNotModified(tag.get())) {
+            return null;
+        }
+        // each representation has its own tag, caches must still keep JSON and binary bodies apart
+        var response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+        tag.ifPresent(response::eTag);
+        return response.body(taskService.getTasks(filter, after, limit));
+    }
+
+    /**
+     * Full-text search over task titles and descriptions
+     * @param q words every found task contains
+     * @param offset number of best matches to skip
+     * @param limit page size
+     * @return page of tasks, best match first, with the offset of the next page if there is one
+     */
+    @Operation(summary = "Search tasks by title and description")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching tasks, best match first", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = SearchResults.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks/search", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<SearchResults> searchTasks(@Parameter(description = "words to search for")
+                                         @RequestParam String q,
+                                         @Parameter(description = "number of matches to skip, at most "
+                                                 + TaskService.MAX_SEARCH_OFFSET)
+                                         @RequestParam(defaultValue = "0") int offset,
+                                         @Parameter(description = "page size, at most " + TaskService.MAX_PAGE_SIZE)
+                                         @RequestParam(defaultValue = "" + TaskService.DEFAULT_PAGE_SIZE) int limit) {
+        if (q.isBlank()) {
+            throw new InvalidTaskRequestException("Query must not be blank");
+        }
+        if (offset < 0 || offset > TaskService.MAX_SEARCH_OFFSET) {
+            throw new InvalidTaskRequestException("Offset must be between 0 and " + TaskService.MAX_SEARCH_OFFSET);
+        }
+        return ResponseEntity.ok(taskService.searchTasks(q, offset, limit));
+    }
+
+    /**
+     * Get open tasks due soon, ordered by due date
+     * @param within ISO-8601 duration to look ahead, for example PT1H
+     * @param overdue include tasks that are already past their due date
+     * @param limit maximum number of tasks
+     * @return open tasks due within the given time
+     */
+    @Operation(summary = "Get open tasks due soon")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Open tasks ordered by due date", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = Tasks.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks/due", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Tasks> getDueTasks(@Parameter(description = "ISO-8601 duration to look ahead, at most "
+                                                 + MAX_DUE_WITHIN_DAYS + " days")
+                                         @RequestParam(defaultValue = "PT1H") String within,
+                                         @Parameter(description = "include overdue tasks")
+                                         @RequestParam(defaultValue = "false") boolean overdue,
+                                         @Parameter(description = "maximum number of tasks, at most "
+                                                 + TaskService.MAX_PAGE_SIZE)
+                                         @RequestParam(defaultValue = "" + TaskService.DEFAULT_PAGE_SIZE) int limit) {
+        Duration duration;
+        try {
+            duration = Duration.parse(within);
+        } catch (DateTimeParseException e) {
+            throw new InvalidTaskRequestException("Within must be an ISO-8601 duration");
+        }
+        if (duration.isNegative() || duration.compareTo(Duration.ofDays(MAX_DUE_WITHIN_DAYS)) > 0) {
+            throw new InvalidTaskRequestException("Within must be between 0 and " + MAX_DUE_WITHIN_DAYS + " days");
+        }
+        return ResponseEntity.ok(taskService.getDueTasks(duration, overdue, limit));
+    }
+
+    /**
+     * Get task counts without reading the task list
+     * @param days number of days starting from today in the due histogram
+     * @return total, completed, open and overdue counts and open tasks due per day
+     */
+    @Operation(summary = "Get task counts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Task counts", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TaskStats.class))}),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks/stats", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<TaskStats> getStats(@Parameter(description = "number of days in the due histogram, at most "
+                                                      + TaskStatistics.MAX_DAYS)
+                                              @RequestParam(defaultValue = "7") int days) {
+        return ResponseEntity.ok(taskService.getStats(days));
+    }
+
+    /**
+     * Get tasks changed since the cursor, deleted tasks come as tombstones without the task
+     * @param since cursor of the previous response, absent to get the current end of the change log
+     * @param limit maximum number of change log entries to read
+     * @return changed tasks and the cursor to continue from, 410 if the cursor is older than the retained log
+     */
+    @Operation(summary = "Get task changes since a cursor")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changed tasks", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TaskChanges.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "410", description = "Changes since the cursor were compacted, sync from scratch",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks/changes", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<TaskChanges> getChanges(@Parameter(description = "cursor of the previous response")
+                                                  @RequestParam(required = false) @Min(0) Long since,
+                                                  @Parameter(description = "maximum number of changes, at most "
+                                                          + TaskService.MAX_PAGE_SIZE)
+                                                  @RequestParam(defaultValue = "" + TaskService.DEFAULT_PAGE_SIZE)
+                                                  int limit) {
+        return ResponseEntity.ok(taskChangeService.getChanges(since, limit));
+    }
+
+    /**
+     * Export all tasks as newline delimited JSON, every task is written as soon as it is read from the database
+     * @return stream of all tasks, one task per line
+     */
+    @Operation(summary = "Export all tasks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "All tasks, one JSON task per line", content = {
+                    @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = TaskDTO.class))}),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    @GetMapping(value = "/tasks", produces = MediaType.APPLICATION_JSON_VALUE)
-    @Cacheable(cacheNames = CacheConst.ALL_TASKS_CACHE_NAME)
-    public ResponseEntity<Tasks> getAllTasks() {
-        return ResponseEntity.ok(taskService.getAllTasks());
+    @GetMapping(value = "/tasks/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTasks() {
+        var writer = objectMapper.writerFor(TaskDTO.class);
+        StreamingResponseBody body = outputStream -> taskService.exportTasks(task -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(task));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /**
      * Get one task by ID. If not found return 404.
+     * The task is tagged with its version per representation and its update time,
+     * so If-None-Match and If-Modified-Since get 304
+     * @param webRequest request to negotiate the representation of
      * @param id id of the task to get
      * @return task or 404 if not found
      */
@@ -69,22 +290,35 @@ public class TaskController {
                     @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = TaskDTO.class))
             }),
+            @ApiResponse(responseCode = "304", description = "Task not modified since If-None-Match or If-Modified-Since",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Task not found by id", content = @Content),
             @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
-    @GetMapping(value = "/tasks/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    @Cacheable(cacheNames = CacheConst.TASK_CACHE_NAME, key = "args[0]")
-    public ResponseEntity<TaskDTO> getTaskById(@PathVariable
-                                                   @Min(1)
-                                                   @Parameter(description = "id of the task") Long id) {
-        return taskService.getById(id).map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    @GetMapping(value = "/tasks/{id}", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<TaskDTO> getTaskById(NativeWebRequest webRequest,
+                                               @PathVariable
+                                               @Min(1)
+                                               @Parameter(description = "id of the task") Long id) {
+        return taskService.getById(id).map(task -> {
+            var response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+            if (task.getVersion() != null) {
+                response.eTag(TaskETags.of(task, TaskETags.representation(webRequest)));
+            }
+            if (task.getUpdatedAt() != null) {
+                response.lastModified(task.getUpdatedAt());
+            }
+            return response.body(task);
+        }).orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
      * Create task by provided description
+     * @param request request to identify the client by, idempotency keys are scoped by the client
      * @param task task with creating fields
+     * @param idempotencyKey key of the request, a retry with the same key gets the id of the task created first
      * @return id of the created task
      */
     @Operation(summary = "Create task")
@@ -95,21 +329,31 @@ public class TaskController {
             }),
             @ApiResponse(responseCode = "404", description = "Task not found by id", content = @Content),
             @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Request with the idempotency key is in progress",
+                    content = @Content),
+            @ApiResponse(responseCode = "422", description = "Idempotency key was used for another task",
+                    content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
     @PostMapping(value = "/tasks",
-            produces = MediaType.APPLICATION_JSON_VALUE,
-            consumes = MediaType.APPLICATION_JSON_VALUE)
-    @CacheEvict(cacheNames = CacheConst.ALL_TASKS_CACHE_NAME)
-    public ResponseEntity<TaskId> createTask(@Parameter(description = "task body to create, id is ignored")
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<TaskId> createTask(HttpServletRequest request,
+                                             @Parameter(description = "key making retries create the task once")
+                                             @RequestHeader(value = IDEMPOTENCY_KEY, required = false) @Size(max = 255)
+                                             String idempotencyKey,
+                                             @Parameter(description = "task body to create, id is ignored")
                                                  @RequestBody @Validated(TaskCreation.class) TaskDTO task) {
-        var taskId = taskService.createTask(task);
+        var taskId = idempotent(request, "create", idempotencyKey, task, () -> taskService.createTask(task));
         return ResponseEntity.created(URI.create("/tasks/" + taskId)).body(new TaskId(taskId));
     }
 
     /**
      * Update task by id
      * @param id id of the task to update
+     * @param ifMatch tag the task must have to be updated
      * @param task task body with field to update
      * @return 204
      */
@@ -117,19 +361,23 @@ public class TaskController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Operation result, no content", content = @Content),
             @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Task not found by id", content = @Content),
+            @ApiResponse(responseCode = "412", description = "Task doesn't match If-Match", content = @Content),
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
     @PutMapping(value = "/tasks/{id}",
-            consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE)
-    @Caching(evict = {
-            @CacheEvict(cacheNames = CacheConst.ALL_TASKS_CACHE_NAME),
-            @CacheEvict(cacheNames = CacheConst.TASK_CACHE_NAME, key = "args[0]")})
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
     public ResponseEntity<Void> updateTask(@Parameter(description = "id of the task to update")
                                                  @PathVariable @Min(1) Long id,
+                                             @Parameter(description = "tag of the task version to update")
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                             String ifMatch,
                                              @Parameter(description = "task body containing field to update")
                                              @RequestBody  @Validated(TaskEditing.class) TaskDTO task) {
-        taskService.updateTask(id, task);
+        taskService.updateTask(id, task, TaskETags.expectedVersion(ifMatch));
         return ResponseEntity.noContent().build();
     }
 
@@ -145,12 +393,11 @@ public class TaskController {
             @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
     })
     @DeleteMapping(value = "/tasks/{id}",
-            produces = MediaType.APPLICATION_JSON_VALUE,
-            consumes = MediaType.APPLICATION_JSON_VALUE
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE}
     )
-    @Caching(evict = {
-            @CacheEvict(cacheNames = CacheConst.ALL_TASKS_CACHE_NAME),
-            @CacheEvict(cacheNames = CacheConst.TASK_CACHE_NAME, key = "args[0]")})
     public ResponseEntity<Void> deleteTaskById(@Parameter(description = "id of the task to delete")
                                                    @PathVariable @Min(1) Long id) {
         taskService.removeById(id);
@@ -158,38 +405,301 @@ public class TaskController {
     }
 
     /**
-     * Handle validation errors, return bad request and a map with invalid values
+     * Create tasks in one transaction, invalid tasks are reported and skipped
+     * @param request request to identify the client by, idempotency keys are scoped by the client
+     * @param idempotencyKey key of the request, a retry with the same key gets the result of the first one
+     * @param tasks tasks to create, ids are ignored
+     * @return result of every task in the order of the request
+     */
+    @Operation(summary = "Create tasks in batch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Result of every task", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BatchResult.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Request with the idempotency key is in progress",
+                    content = @Content),
+            @ApiResponse(responseCode = "422", description = "Idempotency key was used for other tasks",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping(value = "/tasks/batch",
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BatchResult> createTasks(HttpServletRequest request,
+                                         @Parameter(description = "key making retries create the tasks once")
+                                         @RequestHeader(value = IDEMPOTENCY_KEY, required = false) @Size(max = 255)
+                                         String idempotencyKey,
+                                         @Parameter(description = "tasks to create, ids are ignored")
+                                         @RequestBody List<TaskDTO> tasks) {
+        checkBatchSize(tasks.size());
+        return ResponseEntity.ok(idempotent(request, "createBatch", idempotencyKey, tasks, () -> createValidTasks(tasks)));
+    }
+
+    /**
+     * Create the valid tasks and report the invalid ones
+     * @param tasks tasks to create
+     * @return result of every task in the order of the request
+     */
+    private BatchResult createValidTasks(List<TaskDTO> tasks) {
+        var results = new BatchItemResult[tasks.size()];
+        var valid = new ArrayList<TaskDTO>();
+        var validIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < tasks.size(); i++) {
+            var errors = validate(tasks.get(i), TaskCreation.class);
+            if (errors.isEmpty()) {
+                valid.add(tasks.get(i));
+                validIndexes.add(i);
+            } else {
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value(), errors);
+            }
+        }
+        var ids = valid.isEmpty() ? List.<Long>of() : taskService.createTasks(valid);
+        for (int i = 0; i < ids.size(); i++) {
+            int index = validIndexes.get(i);
+            results[index] = BatchItemResult.of(index, ids.get(i), HttpStatus.CREATED.value());
+        }
+        return new BatchResult(Arrays.asList(results));
+    }
+
+    /**
+     * Update tasks in one transaction, invalid tasks are reported and skipped
+     * @param tasks tasks with ids and fields to update
+     * @return result of every task in the order of the request
+     */
+    @Operation(summary = "Update tasks in batch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Result of every task", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BatchResult.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PatchMapping(value = "/tasks/batch",
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BatchResult> updateTasks(@Parameter(description = "tasks with id and fields to update")
+                                         @RequestBody List<TaskDTO> tasks) {
+        checkBatchSize(tasks.size());
+        var results = new BatchItemResult[tasks.size()];
+        var valid = new ArrayList<TaskDTO>();
+        for (int i = 0; i < tasks.size(); i++) {
+            var errors = validate(tasks.get(i), TaskEditing.class);
+            if (tasks.get(i) != null && tasks.get(i).getId() == null) {
+                errors.put("id", "Task id must be present");
+            }
+            if (errors.isEmpty()) {
+                valid.add(tasks.get(i));
+            } else {
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value(), errors);
+            }
+        }
+        var updated = valid.isEmpty() ? Set.<Long>of() : taskService.updateTasks(valid);
+        for (int i = 0; i < tasks.size(); i++) {
+            if (results[i] == null) {
+                var id = tasks.get(i).getId();
+                results[i] = BatchItemResult.of(i, id, updated.contains(id)
+                        ? HttpStatus.NO_CONTENT.value() : HttpStatus.NOT_FOUND.value());
+            }
+        }
+        return ResponseEntity.ok(new BatchResult(Arrays.asList(results)));
+    }
+
+    /**
+     * Delete tasks by ids with one statement
+     * @param ids ids of the tasks to delete
+     * @return result of every id in the order of the request
+     */
+    @Operation(summary = "Delete tasks in batch")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Result of every id", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BatchResult.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @DeleteMapping(value = "/tasks/batch", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BatchResult> deleteTasks(@Parameter(description = "ids of the tasks to delete")
+                                         @RequestParam List<Long> ids) {
+        checkBatchSize(ids.size());
+        var removed = ids.isEmpty() ? Set.<Long>of() : taskService.removeByIds(ids);
+        var results = new ArrayList<BatchItemResult>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            results.add(BatchItemResult.of(i, ids.get(i), removed.contains(ids.get(i))
+                    ? HttpStatus.NO_CONTENT.value() : HttpStatus.NOT_FOUND.value()));
+        }
+        return ResponseEntity.ok(new BatchResult(results));
+    }
+
+    /**
+     * Mark the selected open tasks completed with set-based updates
+     * @param ids ids of the tasks to complete
+     * @param dueBefore complete tasks due before this time
+     * @return number of completed tasks
+     */
+    @Operation(summary = "Complete selected tasks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of completed tasks", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BulkUpdateResult.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping(value = "/tasks/complete", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BulkUpdateResult> completeTasks(@Parameter(description = "ids of the tasks to complete")
+                                           @RequestParam(required = false) List<Long> ids,
+                                           @Parameter(description = "exclusive upper bound of the due date")
+                                           @RequestParam(required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueBefore) {
+        return bulkUpdate(new TaskSelection(ids, dueBefore), taskService::completeTasks);
+    }
+
+    /**
+     * Mark the selected completed tasks open again with set-based updates
+     * @param ids ids of the tasks to reopen
+     * @param dueBefore reopen tasks due before this time
+     * @return number of reopened tasks
+     */
+    @Operation(summary = "Reopen selected tasks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of reopened tasks", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BulkUpdateResult.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping(value = "/tasks/reopen", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BulkUpdateResult> reopenTasks(@Parameter(description = "ids of the tasks to reopen")
+                                         @RequestParam(required = false) List<Long> ids,
+                                         @Parameter(description = "exclusive upper bound of the due date")
+                                         @RequestParam(required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueBefore) {
+        return bulkUpdate(new TaskSelection(ids, dueBefore), taskService::reopenTasks);
+    }
+
+    /**
+     * Move the due date of the selected open tasks by whole days with set-based updates
+     * @param days number of days to add, negative to bring the due date forward, at most MAX_POSTPONE_DAYS either way
+     * @param ids ids of the tasks to postpone
+     * @param dueBefore postpone tasks due before this time
+     * @return number of postponed tasks
+     */
+    @Operation(summary = "Postpone selected tasks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Number of postponed tasks", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = BulkUpdateResult.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping(value = "/tasks/postpone", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<BulkUpdateResult> postponeTasks(@Parameter(description = "number of days to move the due date by, at most "
+                                                   + TaskService.MAX_POSTPONE_DAYS + " either way")
+                                           @RequestParam @Min(-TaskService.MAX_POSTPONE_DAYS)
+                                           @Max(TaskService.MAX_POSTPONE_DAYS) long days,
+                                           @Parameter(description = "ids of the tasks to postpone")
+                                           @RequestParam(required = false) List<Long> ids,
+                                           @Parameter(description = "exclusive upper bound of the due date")
+                                           @RequestParam(required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueBefore) {
+        return bulkUpdate(new TaskSelection(ids, dueBefore), selection -> taskService.postponeTasks(selection, days));
+    }
+
+    private ResponseEntity<BulkUpdateResult> bulkUpdate(TaskSelection selection, ToIntFunction<TaskSelection> update) {
+        if (selection.isEmpty()) {
+            throw new InvalidTaskRequestException("Either ids or dueBefore must be present");
+        }
+        if (selection.ids() != null) {
+            checkBatchSize(selection.ids().size());
+        }
+        return ResponseEntity.ok(new BulkUpdateResult(update.applyAsInt(selection)));
+    }
+
+    private Map<String, String> validate(TaskDTO task, Class<?> group) {
+        if (task == null) {
+            return new HashMap<>(Map.of("task", "Task must be present"));
+        }
+        return validator.validate(task, group).stream()
+                .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(),
+                        ConstraintViolation::getMessage, (first, second) -> first, HashMap::new));
+    }
+
+    private <T> T idempotent(HttpServletRequest request, String operation, String idempotencyKey, Object body,
+                             Supplier<T> action) {
+        return idempotencyKey == null
+                ? action.get()
+                : idempotencyStore.execute(clientIdentity.of(request), operation, idempotencyKey, body, action);
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new InvalidTaskRequestException("Batch must contain at most " + MAX_BATCH_SIZE + " items");
+        }
+    }
+
+    /**
+     * Handle a write of an absent task, return not found and an object {"error" : "description"}
+     * @param exception exception to handle
+     * @return response entity with not found status and object with error
+     */
+    @ExceptionHandler(TaskNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(TaskNotFoundException exception) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", exception.getMessage()));
+    }
+
+    /**
+     * Handle a change feed cursor older than the retained log, return gone and an object {"error" : "description"}
+     * @param exception exception to handle
+     * @return response entity with gone status and object with error
+     */
+    @ExceptionHandler(ChangeCursorExpiredException.class)
+    public ResponseEntity<Map<String, String>> handleExpiredCursor(ChangeCursorExpiredException exception) {
+        return ResponseEntity.status(HttpStatus.GONE).body(Map.of("error", exception.getMessage()));
+    }
+
+    /**
+     * Handle failed optimistic concurrency, return precondition failed and an object {"error" : "description"}
      * @param exception exception to handle
-     * @return response entity with bad request status and a map of invalid values and reason why they are invalid
+     * @return response entity with precondition failed status and object with error
      */
-    @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, String>> handleInvalidRequestArguments(MethodArgumentNotValidException exception) {
-        var validationErrors = exception.getBindingResult().getAllErrors().stream()
-                .filter(FieldError.class::isInstance)
-                .map(FieldError.class::cast)
-                .collect(Collectors.toMap(FieldError::getField, e -> Optional.ofNullable(e.getDefaultMessage())
-                        .orElseGet(() -> "Invalid")));
-        return ResponseEntity.badRequest().body(validationErrors);
+    @ExceptionHandler(value = {TaskVersionMismatchException.class, ObjectOptimisticLockingFailureException.class})
+    public ResponseEntity<Map<String, String>> handleVersionMismatch(Exception exception) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(Map.of("error", exception.getMessage()));
     }
 
     /**
-     * Handle argument error, return bad request and an object {"error" : "description"} back to user
+     * Handle a repeated request whose first request is still running, return conflict and an object {"error" : "description"}
      * @param exception exception to handle
-     * @return response entity with bad request status and object with error
+     * @return response entity with conflict status and object with error
      */
-    @ExceptionHandler(value = {MethodArgumentConversionNotSupportedException.class,
-            MethodArgumentTypeMismatchException.class})
-    public ResponseEntity<Map<String, String>> handleInvalidConversion(Exception exception) {
-        return ResponseEntity.badRequest().body(Map.of("error", exception.getMessage()));
+    @ExceptionHandler(IdempotentRequestInProgressException.class)
+    public ResponseEntity<Map<String, String>> handleRequestInProgress(IdempotentRequestInProgressException exception) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", exception.getMessage()));
     }
 
     /**
-     * Every other error that is not validation or parsing request should be treated as Internal
-     * @param throwable error that occurred inside the service
-     * @return response entity with internal server error and object with error
+     * Handle an idempotency key sent with another body, return unprocessable entity and an object {"error" : "description"}
+     * @param exception exception to handle
+     * @return response entity with unprocessable entity status and object with error
      */
-    @ExceptionHandler
-    public ResponseEntity<Map<String, String>> handleGenericException(Throwable throwable) {
-        return ResponseEntity.internalServerError().body(Map.of("error", throwable.getMessage()));
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<Map<String, String>> handleReusedKey(IdempotencyKeyReusedException exception) {
+        return ResponseEntity.unprocessableEntity().body(Map.of("error", exception.getMessage()));
     }
 }
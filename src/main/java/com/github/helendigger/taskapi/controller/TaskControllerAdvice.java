@@ -0,0 +1,82 @@
+package com.github.helendigger.taskapi.controller;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.exception.InvalidTaskRequestException;
+import org.springframework.context.MessageSourceResolvable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentConversionNotSupportedException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Errors handled the same way by all task controllers.
+ * Handlers declared in a controller are tried first, a controller declares only the errors of its own operations
+ */
+@RestControllerAdvice(assignableTypes = {TaskController.class, TaskIngestionController.class})
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskControllerAdvice {
+    /**
+     * Handle validation errors, return bad request and a map with invalid values
+     * @param exception exception to handle
+     * @return response entity with bad request status and a map of invalid values and reason why they are invalid
+     */
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequestArguments(MethodArgumentNotValidException exception) {
+        var validationErrors = exception.getBindingResult().getAllErrors().stream()
+                .filter(FieldError.class::isInstance)
+                .map(FieldError.class::cast)
+                .collect(Collectors.toMap(FieldError::getField, e -> Optional.ofNullable(e.getDefaultMessage())
+                        .orElseGet(() -> "Invalid"), (first, second) -> first));
+        return ResponseEntity.badRequest().body(validationErrors);
+    }
+
+    /**
+     * Handle constraint violations of request parameters, headers and path variables,
+     * return bad request and a map with invalid parameters
+     * @param exception exception to handle
+     * @return response entity with bad request status and a map of invalid parameters and reason why they are invalid
+     */
+    @ExceptionHandler(HandlerMethodValidationException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidParameters(HandlerMethodValidationException exception) {
+        var validationErrors = exception.getAllValidationResults().stream()
+                .collect(Collectors.toMap(result -> Optional.ofNullable(result.getMethodParameter().getParameterName())
+                                .orElseGet(() -> "arg" + result.getMethodParameter().getParameterIndex()),
+                        result -> result.getResolvableErrors().stream()
+                                .map(MessageSourceResolvable::getDefaultMessage)
+                                .filter(Objects::nonNull)
+                                .findFirst()
+                                .orElse("Invalid"), (first, second) -> first));
+        return ResponseEntity.badRequest().body(validationErrors);
+    }
+
+    /**
+     * Handle argument error, return bad request and an object {"error" : "description"} back to user
+     * @param exception exception to handle
+     * @return response entity with bad request status and object with error
+     */
+    @ExceptionHandler(value = {MethodArgumentConversionNotSupportedException.class,
+            MethodArgumentTypeMismatchException.class, InvalidTaskRequestException.class})
+    public ResponseEntity<Map<String, String>> handleInvalidConversion(Exception exception) {
+        return ResponseEntity.badRequest().body(Map.of("error", exception.getMessage()));
+    }
+
+    /**
+     * Every other error that is not validation or parsing request should be treated as Internal
+     * @param throwable error that occurred inside the service
+     * @return response entity with internal server error and object with error
+     */
+    @ExceptionHandler
+    public ResponseEntity<Map<String, String>> handleGenericException(Throwable throwable) {
+        return ResponseEntity.internalServerError().body(Map.of("error", throwable.getMessage()));
+    }
+}
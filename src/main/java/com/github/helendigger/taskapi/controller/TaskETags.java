@@ -0,0 +1,86 @@
+package com.github.helendigger.taskapi.controller;
+
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import org.springframework.http.MediaType;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.HeaderContentNegotiationStrategy;
+import org.springframework.web.context.request.NativeWebRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Strong entity tags of task representations. JSON, CBOR and Smile bodies of the same state differ byte for byte,
+ * so the tag is the state followed by the representation, the tag of a single task is its version.
+ * If-Match compares versions only, a client may send back the tag of any representation
+ */
+public final class TaskETags {
+    /**
+     * Version no task can have, used for If-Match values that can't match any task
+     */
+    static final long UNMATCHABLE_VERSION = -1L;
+
+    private static final Map<MediaType, String> REPRESENTATIONS = new LinkedHashMap<>();
+    private static final HeaderContentNegotiationStrategy ACCEPT = new HeaderContentNegotiationStrategy();
+
+    static {
+        // in the order of the produces lists, the first compatible type is the one written
+        REPRESENTATIONS.put(MediaType.APPLICATION_JSON, "json");
+        REPRESENTATIONS.put(MediaType.APPLICATION_CBOR, "cbor");
+        REPRESENTATIONS.put(MediaType.parseMediaType(TaskMediaTypes.APPLICATION_SMILE_VALUE), "smile");
+    }
+
+    private TaskETags() {
+    }
+
+    public static String of(TaskDTO task, String representation) {
+        return of(String.valueOf(task.getVersion()), representation);
+    }
+
+    public static String of(String state, String representation) {
+        return "\"" + state + "-" + representation + "\"";
+    }
+
+    /**
+     * Name of the representation the request gets, negotiated from its Accept header like the body is
+     * @param request current request
+     * @return name of the representation, json if nothing else is accepted
+     */
+    public static String representation(NativeWebRequest request) {
+        try {
+            for (var accepted : ACCEPT.resolveMediaTypes(request)) {
+                for (var produced : REPRESENTATIONS.entrySet()) {
+                    if (accepted.isCompatibleWith(produced.getKey())) {
+                        return produced.getValue();
+                    }
+                }
+            }
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            // an unparsable header is rejected by the mapping before, this is unreachable in practice
+        }
+        return "json";
+    }
+
+    /**
+     * Get the version required by the If-Match header.
+     * Weak tags never match as If-Match needs strong comparison, only a single tag is supported
+     * @param ifMatch value of the header, may be null
+     * @return required version, null if any version matches
+     */
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var tag = ifMatch.trim();
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return UNMATCHABLE_VERSION;
+        }
+        var value = tag.substring(1, tag.length() - 1);
+        int representation = value.indexOf('-');
+        try {
+            return Long.parseLong(representation < 0 ? value : value.substring(0, representation));
+        } catch (NumberFormatException e) {
+            return UNMATCHABLE_VERSION;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.helendigger.taskapi.controller;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.IngestionStatus;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.validation.TaskCreation;
+import com.github.helendigger.taskapi.exception.TaskIngestionUnavailableException;
+import com.github.helendigger.taskapi.service.TaskIngestion;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * API for asynchronous task creation, tasks are accepted right away and written in batches
+ */
+@RestController
+@Profile(ProfileConst.NOT_REACTIVE)
+@AllArgsConstructor
+public class TaskIngestionController {
+    private final TaskIngestion taskIngestion;
+
+    /**
+     * Queue the task for creation
+     * @param task task body to create, id is ignored
+     * @return queued status with the tracking id, the status is at the location header
+     */
+    @Operation(summary = "Queue task for creation")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Task is queued", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = IngestionStatus.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Queue is full or the service is stopping",
+                    content = @Content)
+    })
+    @PostMapping(value = "/tasks/async",
+            produces = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE},
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<IngestionStatus> createTaskAsync(@Parameter(description = "task body to create, id is ignored")
+                                                           @RequestBody @Validated(TaskCreation.class) TaskDTO task) {
+        var status = taskIngestion.submit(task);
+        return ResponseEntity.accepted().location(URI.create("/tasks/async/" + status.trackingId())).body(status);
+    }
+
+    /**
+     * Get the status of a queued task
+     * @param trackingId tracking id returned when the task was queued
+     * @return status of the task
+     */
+    @Operation(summary = "Get status of queued task")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Status of the task", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = IngestionStatus.class))
+            }),
+            @ApiResponse(responseCode = "404", description = "Unknown or expired tracking id", content = @Content)
+    })
+    @GetMapping(value = "/tasks/async/{trackingId}", produces = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_CBOR_VALUE, TaskMediaTypes.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<IngestionStatus> getStatus(@Parameter(description = "tracking id of the task")
+                                                     @PathVariable String trackingId) {
+        return ResponseEntity.of(taskIngestion.status(trackingId));
+    }
+
+    /**
+     * Reject the task when it can't be queued, return service unavailable and an object {"error" : "description"}
+     * @param exception exception to handle
+     * @return response entity with service unavailable status and object with error
+     */
+    @ExceptionHandler(TaskIngestionUnavailableException.class)
+    public ResponseEntity<Map<String, String>> handleUnavailable(TaskIngestionUnavailableException exception) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", exception.getMessage()));
+    }
+}
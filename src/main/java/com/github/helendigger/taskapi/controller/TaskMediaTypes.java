@@ -0,0 +1,11 @@
+package com.github.helendigger.taskapi.controller;
+
+/**
+ * Media types of the binary task representations, JSON stays the default when the client accepts anything
+ */
+public final class TaskMediaTypes {
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    private TaskMediaTypes() {
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.helendigger.taskapi.controller;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.exception.TaskStreamFullException;
+import com.github.helendigger.taskapi.service.TaskEventStream;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Push API of task changes
+ */
+@RestController
+@Profile(ProfileConst.NOT_REACTIVE)
+@AllArgsConstructor
+public class TaskStreamController {
+    private final TaskEventStream taskEventStream;
+
+    /**
+     * Stream task changes of all nodes as server-sent events,
+     * the last change of every batch has the change feed cursor as id
+     * @param lastEventId id of the last event got before reconnecting, missed changes are sent first
+     * @return stream of task changes
+     */
+    @Operation(summary = "Stream task changes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Task change and due events, a reset event asks for a full sync",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+            @ApiResponse(responseCode = "503", description = "Too many open streams", content = @Content)
+    })
+    @GetMapping(value = "/tasks/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTasks(@Parameter(description = "id of the last event got before reconnecting")
+                                  @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return taskEventStream.subscribe(lastEventId);
+    }
+
+    /**
+     * Reject the stream when the subscriber limit is reached, the response has no body
+     * as the client accepts only an event stream
+     * @return response entity with service unavailable status
+     */
+    @ExceptionHandler(TaskStreamFullException.class)
+    public ResponseEntity<Void> handleStreamFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+    }
+}
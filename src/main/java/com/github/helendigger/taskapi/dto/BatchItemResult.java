@@ -0,0 +1,19 @@
+package com.github.helendigger.taskapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Map;
+
+/**
+ * Result of one item of a batch request
+ * @param index position of the item in the request
+ * @param id id of the task the item refers to, absent if the task wasn't created
+ * @param status http status the item would have got as a single request
+ * @param errors validation errors of the item, absent if the item is valid
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(int index, Long id, int status, Map<String, String> errors) {
+    public static BatchItemResult of(int index, Long id, int status) {
+        return new BatchItemResult(index, id, status, null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.dto;
+
+import java.util.List;
+
+/**
+ * Results of a batch request, one result per item in the order of the request
+ * @param results item results
+ */
+public record BatchResult(List<BatchItemResult> results) {
+}
@@ -0,0 +1,8 @@
+package com.github.helendigger.taskapi.dto;
+
+/**
+ * Result of a bulk operation
+ * @param updated number of updated tasks
+ */
+public record BulkUpdateResult(int updated) {
+}
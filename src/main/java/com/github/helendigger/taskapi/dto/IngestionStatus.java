@@ -0,0 +1,27 @@
+package com.github.helendigger.taskapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Status of a task queued for asynchronous creation
+ * @param trackingId id the status is requested by
+ * @param state state of the task
+ * @param taskId id of the created task, absent until it is created
+ * @param error reason the task wasn't created, absent unless it failed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record IngestionStatus(String trackingId, State state, Long taskId, String error) {
+    public enum State { QUEUED, CREATED, FAILED }
+
+    public static IngestionStatus queued(String trackingId) {
+        return new IngestionStatus(trackingId, State.QUEUED, null, null);
+    }
+
+    public static IngestionStatus created(String trackingId, Long taskId) {
+        return new IngestionStatus(trackingId, State.CREATED, taskId, null);
+    }
+
+    public static IngestionStatus failed(String trackingId, String error) {
+        return new IngestionStatus(trackingId, State.FAILED, null, error);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.helendigger.taskapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Page of search results
+ * @param tasks matching tasks, best match first
+ * @param nextOffset offset of the next page, absent if this is the last page
+ */
+public record SearchResults(List<TaskDTO> tasks, @JsonInclude(JsonInclude.Include.NON_NULL) Integer nextOffset) {
+    public static SearchResults of(List<TaskDTO> found, int offset, int limit) {
+        return found.size() > limit
+                ? new SearchResults(found.subList(0, limit), offset + limit)
+                : new SearchResults(found, null);
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.helendigger.taskapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.helendigger.taskapi.model.ChangeType;
+
+/**
+ * Change of one task in the change feed
+ * @param taskId id of the changed task
+ * @param type latest kind of change, a deleted task is a tombstone without the task
+ * @param task current state of the task, absent for deleted tasks
+ */
+public record TaskChangeDTO(Long taskId, ChangeType type, @JsonInclude(JsonInclude.Include.NON_NULL) TaskDTO task) {
+}
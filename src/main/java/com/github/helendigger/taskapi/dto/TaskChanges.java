@@ -0,0 +1,12 @@
+package com.github.helendigger.taskapi.dto;
+
+import java.util.List;
+
+/**
+ * Page of the change feed
+ * @param changes changed tasks, each task appears once with its latest change
+ * @param cursor value to pass as "since" to get the following changes
+ * @param hasMore whether more changes can be read right away with the cursor
+ */
+public record TaskChanges(List<TaskChangeDTO> changes, long cursor, boolean hasMore) {
+}
@@ -1,7 +1,9 @@
 package com.github.helendigger.taskapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.github.helendigger.taskapi.dto.validation.TaskCreation;
 import com.github.helendigger.taskapi.dto.validation.TaskEditing;
+import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -11,11 +13,12 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 /**
  * Task DTO used to describe creating and editing scenarios of the task
- * Id field from the user is ignored and used only as view
+ * Id field from the user is ignored and used only as view, version and update time are never read from the user
  */
 @Data
 @Builder
@@ -38,6 +41,14 @@ public class TaskDTO {
     @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
     private LocalDateTime dueDate;
 
-    @Builder.Default
-    private Boolean completed = false;
+    // absent keeps the state on update and creates an open task
+    private Boolean completed;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(accessMode = Schema.AccessMode.READ_ONLY)
+    private Long version;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Schema(accessMode = Schema.AccessMode.READ_ONLY)
+    private Instant updatedAt;
 }
@@ -0,0 +1,13 @@
+package com.github.helendigger.taskapi.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional filters applied to the task list, absent values are not filtered on
+ * @param completed completion state of the task
+ * @param dueFrom inclusive lower bound of the due date
+ * @param dueTo exclusive upper bound of the due date
+ */
+public record TaskFilter(Boolean completed, LocalDateTime dueFrom, LocalDateTime dueTo) {
+    public static final TaskFilter NONE = new TaskFilter(null, null, null);
+}
@@ -0,0 +1,15 @@
+package com.github.helendigger.taskapi.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Tasks a bulk operation applies to, both conditions must hold if both are present
+ * @param ids ids of the tasks or null for any task
+ * @param dueBefore exclusive upper bound of the due date or null for any due date
+ */
+public record TaskSelection(List<Long> ids, LocalDateTime dueBefore) {
+    public boolean isEmpty() {
+        return ids == null && dueBefore == null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.helendigger.taskapi.dto;
+
+import java.time.LocalDate;
+import java.util.SortedMap;
+
+/**
+ * Task counts
+ * @param total number of tasks
+ * @param completed number of completed tasks
+ * @param open number of open tasks
+ * @param overdue number of open tasks due on an earlier day than today
+ * @param dueByDay number of open tasks due on each day starting from today, days without tasks are absent
+ */
+public record TaskStats(long total, long completed, long open, long overdue, SortedMap<LocalDate, Long> dueByDay) {
+}
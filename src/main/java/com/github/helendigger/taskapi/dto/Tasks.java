@@ -1,10 +1,16 @@
 package com.github.helendigger.taskapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 /**
- * List of all tasks
- * @param tasks list of all tasks
+ * Page of tasks
+ * @param tasks tasks of the page ordered by id
+ * @param nextCursor id to pass as "after" to get the next page, absent if this is the last page
  */
-public record Tasks(List<TaskDTO> tasks) {
+public record Tasks(List<TaskDTO> tasks, @JsonInclude(JsonInclude.Include.NON_NULL) Long nextCursor) {
+    public Tasks(List<TaskDTO> tasks) {
+        this(tasks, null);
+    }
 }
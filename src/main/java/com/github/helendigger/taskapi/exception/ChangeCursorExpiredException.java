@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when changes after the cursor were already compacted away, the client has to sync from scratch
+ */
+public class ChangeCursorExpiredException extends RuntimeException {
+    public ChangeCursorExpiredException(long cursor) {
+        super("Changes since " + cursor + " are no longer available");
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when an idempotency key is sent again with another request body
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was used for another request");
+    }
+}
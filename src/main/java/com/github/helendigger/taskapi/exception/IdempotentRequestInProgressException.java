@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when the first request with an idempotency key didn't finish while a repeated one waited for it
+ */
+public class IdempotentRequestInProgressException extends RuntimeException {
+    public IdempotentRequestInProgressException(String key) {
+        super("Request with idempotency key " + key + " is still in progress");
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when request parameters are well-formed but not acceptable together, answered with bad request
+ */
+public class InvalidTaskRequestException extends RuntimeException {
+    public InvalidTaskRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when a task can't be queued for creation because the queue is full or the service is stopping
+ */
+public class TaskIngestionUnavailableException extends RuntimeException {
+    public TaskIngestionUnavailableException(String message) {
+        super(message);
+    }
+}
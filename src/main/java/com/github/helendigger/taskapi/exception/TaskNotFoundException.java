@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when a write targets a task that doesn't exist
+ */
+public class TaskNotFoundException extends RuntimeException {
+    public TaskNotFoundException(Long taskId) {
+        super("Task " + taskId + " not found");
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when the number of open task streams reached the limit
+ */
+public class TaskStreamFullException extends RuntimeException {
+    public TaskStreamFullException(int maxSubscribers) {
+        super("Task stream reached " + maxSubscribers + " subscribers, retry later");
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.exception;
+
+/**
+ * Thrown when a conditional write expected another version of the task than the stored one
+ */
+public class TaskVersionMismatchException extends RuntimeException {
+    public TaskVersionMismatchException(Long taskId, Long expectedVersion) {
+        super("Task " + taskId + " doesn't match version " + expectedVersion);
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.helendigger.taskapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the number of SQL statements every request has run as the task.request.queries summary.
+ * An asynchronous request, like the streamed export, is recorded once it completes,
+ * with the statements of the executor threads counting propagated to
+ */
+@AllArgsConstructor
+public class RequestQueryCountFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var count = RequestQueryCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueryCounter.stop();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(request, count));
+            } else {
+                record(request, count.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int queries) {
+        var uri = Optional.ofNullable(request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE))
+                .map(Object::toString).orElse("UNKNOWN");
+        DistributionSummary.builder("task.request.queries")
+                .description("SQL statements run by one request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(queries);
+    }
+
+    @AllArgsConstructor
+    private class CompletionListener implements AsyncListener {
+        private final HttpServletRequest request;
+        private final AtomicInteger count;
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, count.get());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
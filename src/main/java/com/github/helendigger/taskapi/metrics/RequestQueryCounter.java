@@ -0,0 +1,64 @@
+package com.github.helendigger.taskapi.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts SQL statements prepared by hibernate on the current thread while counting is started.
+ * Work a request hands to another thread is counted for the request when it is wrapped by propagate
+ */
+public class RequestQueryCounter implements StatementInspector {
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        var count = COUNT.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+
+    /**
+     * Start counting on the current thread
+     * @return count of the statements, it keeps growing while threads the counting was propagated to run
+     */
+    public static AtomicInteger start() {
+        var count = new AtomicInteger();
+        COUNT.set(count);
+        return count;
+    }
+
+    /**
+     * Stop counting on the current thread
+     */
+    public static void stop() {
+        COUNT.remove();
+    }
+
+    /**
+     * Count statements of the task for the request submitting it, whatever thread the task runs on
+     * @param task task submitted while counting
+     * @return task counting on the thread running it
+     */
+    public static Runnable propagate(Runnable task) {
+        var count = COUNT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            var previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    COUNT.remove();
+                } else {
+                    COUNT.set(previous);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.model;
+
+/**
+ * Kind of a write recorded in the task change log
+ */
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
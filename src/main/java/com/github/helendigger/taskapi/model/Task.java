@@ -1,24 +1,41 @@
 package com.github.helendigger.taskapi.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.format.annotation.DateTimeFormat;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 /**
  * Entity describing task in the data storage
+ * Indexes back the keyset pagination filters, every index ends with id so pages are read in index order.
+ * Open tasks ordered by due date are read from the completed, dueDate index by the due scheduler.
+ * Ids come from a pooled sequence, so inserts don't need a round trip for the key and can be batched.
+ * Version and update time are changed on every write and are used for conditional requests
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_completed_id", columnList = "completed, id"),
+        @Index(name = "idx_task_due_date_id", columnList = "dueDate, id"),
+        @Index(name = "idx_task_completed_due_date_id", columnList = "completed, dueDate, id")
+})
 @Data
 public class Task {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = 50)
     private Long id;
     @NotNull
     @Size(min = 3, max = 255)
@@ -31,4 +48,9 @@ public class Task {
     private LocalDateTime dueDate;
     @NotNull
     private Boolean completed;
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+    @UpdateTimestamp
+    private Instant updatedAt;
 }
@@ -0,0 +1,59 @@
+package com.github.helendigger.taskapi.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Entry of the append-only log of task writes. Ids come from a pooled sequence, so entries are inserted in batches,
+ * the cursor of the change feed is the position assigned by the ChangeSequencer after the write is finished
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_task_change_changed_at", columnList = "changedAt"),
+        @Index(name = "idx_task_change_position", columnList = "log_position", unique = true)
+})
+@Data
+public class TaskChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_change_seq")
+    @SequenceGenerator(name = "task_change_seq", sequenceName = "task_change_seq", allocationSize = 50)
+    private Long id;
+    /**
+     * Id of the writing transaction, set by the database where it has one
+     */
+    @Column(insertable = false, updatable = false)
+    private Long txid;
+    /**
+     * Position in the change feed, null until the change is sequenced
+     */
+    @Column(name = "log_position", insertable = false, updatable = false)
+    private Long position;
+    @NotNull
+    private Long taskId;
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ChangeType type;
+    @NotNull
+    private Instant changedAt;
+
+    public static TaskChange of(Long taskId, ChangeType type) {
+        var change = new TaskChange();
+        change.setTaskId(taskId);
+        change.setType(type);
+        change.setChangedAt(Instant.now());
+        return change;
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.helendigger.taskapi.reactive;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.TaskId;
+import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.dto.validation.TaskCreation;
+import com.github.helendigger.taskapi.dto.validation.TaskEditing;
+import com.github.helendigger.taskapi.service.TaskService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking API for task management, serves the same contract as TaskController
+ */
+@RestController
+@Profile(ProfileConst.REACTIVE)
+@AllArgsConstructor
+public class ReactiveTaskController {
+
+    private final ReactiveTaskService taskService;
+
+    /**
+     * Get a page of tasks ordered by id, next page is requested with the cursor of the previous one
+     * @param after id of the last task of the previous page
+     * @param limit page size
+     * @param completed completion state filter
+     * @param dueFrom inclusive due date lower bound
+     * @param dueTo exclusive due date upper bound
+     * @return page of tasks and cursor of the next page
+     */
+    @Operation(summary = "Get page of tasks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page of tasks", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = Tasks.class))}),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<Tasks> getAllTasks(@Parameter(description = "cursor, id of the last task of the previous page")
+                                   @RequestParam(required = false) Long after,
+                                   @Parameter(description = "page size, at most " + TaskService.MAX_PAGE_SIZE)
+                                   @RequestParam(defaultValue = "" + TaskService.DEFAULT_PAGE_SIZE) int limit,
+                                   @Parameter(description = "completion state of the tasks")
+                                   @RequestParam(required = false) Boolean completed,
+                                   @Parameter(description = "inclusive lower bound of the due date")
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueFrom,
+                                   @Parameter(description = "exclusive upper bound of the due date")
+                                   @RequestParam(required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueTo) {
+        return taskService.getTasks(new TaskFilter(completed, dueFrom, dueTo), after, limit);
+    }
+
+    /**
+     * Stream all tasks as newline delimited JSON, rows are read only as fast as the client consumes them
+     * @return all tasks, one task per line
+     */
+    @Operation(summary = "Export all tasks")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "All tasks, one JSON task per line", content = {
+                    @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = TaskDTO.class))}),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TaskDTO> exportTasks() {
+        return taskService.exportTasks();
+    }
+
+    /**
+     * Get one task by ID. If not found return 404.
+     * @param id id of the task to get
+     * @return task or 404 if not found
+     */
+    @Operation(summary = "Get task by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Task got by id", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TaskDTO.class))
+            }),
+            @ApiResponse(responseCode = "404", description = "Task not found by id", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @GetMapping(value = "/tasks/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<TaskDTO>> getTaskById(@PathVariable
+                                                     @Min(1)
+                                                     @Parameter(description = "id of the task") Long id) {
+        return taskService.getById(id).map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Create task by provided description
+     * @param task task with creating fields
+     * @return id of the created task
+     */
+    @Operation(summary = "Create task")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Id of the created task", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = TaskId.class))
+            }),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PostMapping(value = "/tasks",
+            produces = MediaType.APPLICATION_JSON_VALUE,
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<TaskId>> createTask(@Parameter(description = "task body to create, id is ignored")
+                                                   @RequestBody @Validated(TaskCreation.class) TaskDTO task) {
+        return taskService.createTask(task)
+                .map(taskId -> ResponseEntity.created(URI.create("/tasks/" + taskId)).body(new TaskId(taskId)));
+    }
+
+    /**
+     * Update task by id
+     * @param id id of the task to update
+     * @param task task body with field to update
+     * @return 204 or 404 if not found
+     */
+    @Operation(summary = "Update task by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Operation result, no content", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Task not found by id", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @PutMapping(value = "/tasks/{id}",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Void>> updateTask(@Parameter(description = "id of the task to update")
+                                                 @PathVariable @Min(1) Long id,
+                                                 @Parameter(description = "task body containing field to update")
+                                                 @RequestBody @Validated(TaskEditing.class) TaskDTO task) {
+        return taskService.updateTask(id, task).map(updated -> updated
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Delete task by ID
+     * @param id id of the task
+     * @return 204
+     */
+    @Operation(summary = "Delete task by id")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Operation result, no content", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Bad request", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Internal server error", content = @Content)
+    })
+    @DeleteMapping(value = "/tasks/{id}")
+    public Mono<ResponseEntity<Void>> deleteTaskById(@Parameter(description = "id of the task to delete")
+                                                     @PathVariable @Min(1) Long id) {
+        return taskService.removeById(id).thenReturn(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * Handle validation errors, return bad request and a map with invalid values
+     * @param exception exception to handle
+     * @return response entity with bad request status and a map of invalid values and reason why they are invalid
+     */
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequestArguments(WebExchangeBindException exception) {
+        var validationErrors = exception.getBindingResult().getAllErrors().stream()
+                .filter(FieldError.class::isInstance)
+                .map(FieldError.class::cast)
+                .collect(Collectors.toMap(FieldError::getField, e -> Optional.ofNullable(e.getDefaultMessage())
+                        .orElseGet(() -> "Invalid"), (first, second) -> first));
+        return ResponseEntity.badRequest().body(validationErrors);
+    }
+
+    /**
+     * Handle argument error, return bad request and an object {"error" : "description"} back to user
+     * @param exception exception to handle
+     * @return response entity with bad request status and object with error
+     */
+    @ExceptionHandler(ServerWebInputException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidConversion(ServerWebInputException exception) {
+        return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(exception.getReason())));
+    }
+
+    /**
+     * Every other error that is not validation or parsing request should be treated as Internal
+     * @param throwable error that occurred inside the service
+     * @return response entity with internal server error and object with error
+     */
+    @ExceptionHandler
+    public ResponseEntity<Map<String, String>> handleGenericException(Throwable throwable) {
+        return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(throwable.getMessage())));
+    }
+}
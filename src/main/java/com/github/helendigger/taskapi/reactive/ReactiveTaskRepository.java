@@ -0,0 +1,133 @@
+package com.github.helendigger.taskapi.reactive;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import io.r2dbc.spi.Readable;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * R2DBC access to the task table created by the JPA deployment, ids are taken from the same task_seq sequence
+ */
+@Repository
+@Profile(ProfileConst.REACTIVE)
+@AllArgsConstructor
+public class ReactiveTaskRepository {
+    private static final String COLUMNS = "id, title, description, due_date, completed, version, updated_at";
+    private static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Keyset page of tasks, only the present filters are added to the query
+     * @param after id of the last task of the previous page
+     * @param filter filters to apply
+     * @param limit maximum number of tasks
+     * @return tasks with id greater than after ordered by id
+     */
+    public Flux<TaskDTO> findPage(long after, TaskFilter filter, int limit) {
+        var sql = new StringBuilder("SELECT " + COLUMNS + " FROM task WHERE id > :after");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("after", after);
+        if (filter.completed() != null) {
+            sql.append(" AND completed = :completed");
+            parameters.put("completed", filter.completed());
+        }
+        if (filter.dueFrom() != null) {
+            sql.append(" AND due_date >= :dueFrom");
+            parameters.put("dueFrom", filter.dueFrom());
+        }
+        if (filter.dueTo() != null) {
+            sql.append(" AND due_date < :dueTo");
+            parameters.put("dueTo", filter.dueTo());
+        }
+        sql.append(" ORDER BY id LIMIT :limit");
+        parameters.put("limit", limit);
+        return databaseClient.sql(sql.toString())
+                .bindValues(parameters)
+                .map(ReactiveTaskRepository::toTask)
+                .all();
+    }
+
+    /**
+     * All tasks ordered by id, rows are fetched from the cursor as the subscriber requests them
+     * @return all tasks
+     */
+    public Flux<TaskDTO> findAll() {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM task ORDER BY id")
+                .filter((statement, next) -> next.execute(statement.fetchSize(FETCH_SIZE)))
+                .map(ReactiveTaskRepository::toTask)
+                .all();
+    }
+
+    public Mono<TaskDTO> findById(long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM task WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveTaskRepository::toTask)
+                .one();
+    }
+
+    public Mono<Long> insert(TaskDTO task) {
+        return databaseClient.sql("INSERT INTO task (" + COLUMNS + ")"
+                        + " VALUES (nextval('task_seq'), :title, :description, :dueDate, :completed, 0, CURRENT_TIMESTAMP)"
+                        + " RETURNING id")
+                .bind("title", task.getTitle())
+                .bind("description", task.getDescription())
+                .bind("dueDate", task.getDueDate())
+                .bind("completed", Boolean.TRUE.equals(task.getCompleted()))
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Update the present fields of the task with one statement, the version is incremented like JPA does
+     * @param id id of the task
+     * @param task fields to update, absent fields are kept
+     * @return number of updated rows
+     */
+    public Mono<Long> update(long id, TaskDTO task) {
+        var spec = databaseClient.sql("UPDATE task SET title = COALESCE(:title, title),"
+                        + " description = COALESCE(:description, description),"
+                        + " due_date = COALESCE(:dueDate, due_date),"
+                        + " completed = COALESCE(:completed, completed),"
+                        + " version = version + 1, updated_at = CURRENT_TIMESTAMP WHERE id = :id")
+                .bind("id", id);
+        spec = bindNullable(spec, "title", task.getTitle(), String.class);
+        spec = bindNullable(spec, "description", task.getDescription(), String.class);
+        spec = bindNullable(spec, "dueDate", task.getDueDate(), LocalDateTime.class);
+        spec = bindNullable(spec, "completed", task.getCompleted(), Boolean.class);
+        return spec.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(long id) {
+        return databaseClient.sql("DELETE FROM task WHERE id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                 String name, Object value, Class<?> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static TaskDTO toTask(Readable row) {
+        return new TaskDTO(row.get("id", Long.class),
+                row.get("title", String.class),
+                row.get("description", String.class),
+                row.get("due_date", LocalDateTime.class),
+                row.get("completed", Boolean.class),
+                row.get("version", Long.class),
+                row.get("updated_at", Instant.class));
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.helendigger.taskapi.reactive;
+
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.service.TaskService;
+import lombok.AllArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+@Service
+@Profile(ProfileConst.REACTIVE)
+@AllArgsConstructor
+public class ReactiveTaskService {
+
+    private final ReactiveTaskRepository taskRepository;
+
+    /**
+     * Get one page of tasks ordered by id using keyset pagination
+     * @param filter filters to apply
+     * @param after id of the last task of the previous page, null for the first page
+     * @param limit requested page size, clamped to 1..MAX_PAGE_SIZE
+     * @return page of tasks with the cursor of the next page if there is one
+     */
+    public Mono<Tasks> getTasks(TaskFilter filter, Long after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, TaskService.MAX_PAGE_SIZE));
+        // one extra row tells whether the next page exists without a count query
+        return taskRepository.findPage(Optional.ofNullable(after).orElse(0L), filter, pageSize + 1)
+                .collectList()
+                .map(found -> {
+                    var page = found.size() > pageSize ? found.subList(0, pageSize) : found;
+                    Long nextCursor = found.size() > pageSize ? page.get(page.size() - 1).getId() : null;
+                    return new Tasks(page, nextCursor);
+                });
+    }
+
+    public Flux<TaskDTO> exportTasks() {
+        return taskRepository.findAll();
+    }
+
+    public Mono<Long> createTask(TaskDTO task) {
+        return taskRepository.insert(task);
+    }
+
+    /**
+     * Update the present fields of the task
+     * @param taskId id of the task
+     * @param task fields to update
+     * @return true if the task was found and updated
+     */
+    public Mono<Boolean> updateTask(Long taskId, TaskDTO task) {
+        return taskRepository.update(taskId, task).map(updated -> updated > 0);
+    }
+
+    public Mono<TaskDTO> getById(Long taskId) {
+        return taskRepository.findById(taskId);
+    }
+
+    public Mono<Void> removeById(Long taskId) {
+        return taskRepository.deleteById(taskId).then();
+    }
+}
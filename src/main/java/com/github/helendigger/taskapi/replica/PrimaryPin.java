@@ -0,0 +1,42 @@
+package com.github.helendigger.taskapi.replica;
+
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions of the current thread to the primary while pinned
+ */
+public final class PrimaryPin {
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private PrimaryPin() {
+    }
+
+    public static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    public static void clear() {
+        PINNED.remove();
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    /**
+     * Run the read on the primary, used for reads whose result is kept, so it must not miss recent writes
+     * @param read read to run
+     * @return result of the read
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        boolean pinned = isPinned();
+        pin();
+        try {
+            return read.get();
+        } finally {
+            if (!pinned) {
+                clear();
+            }
+        }
+    }
+}
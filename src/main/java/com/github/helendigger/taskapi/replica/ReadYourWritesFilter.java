@@ -0,0 +1,123 @@
+package com.github.helendigger.taskapi.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Sends the reads of a client that has just written to the primary for the read-your-writes window,
+ * so the client sees its write even if the replicas lag behind.
+ * A successful write gets a cookie living for the window and a READ_PRIMARY_UNTIL header with the end of the window
+ * in epoch milliseconds. Requests carrying the cookie, or the header with a time still ahead, read from the primary,
+ * clients without cookies echo the header instead. Failed writes change nothing, so they get neither
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE_NAME = "task-primary";
+    public static final String READ_PRIMARY_UNTIL = "X-Read-Primary-Until";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Duration window;
+    private final LongSupplier currentTimeMillis;
+
+    public ReadYourWritesFilter(Duration window) {
+        this(window, System::currentTimeMillis);
+    }
+
+    ReadYourWritesFilter(Duration window, LongSupplier currentTimeMillis) {
+        this.window = window;
+        this.currentTimeMillis = currentTimeMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var marked = SAFE_METHODS.contains(request.getMethod()) ? response : new MarkingResponse(response);
+        if (!isPinned(request)) {
+            filterChain.doFilter(request, marked);
+        } else {
+            PrimaryPin.pin();
+            try {
+                filterChain.doFilter(request, marked);
+            } finally {
+                PrimaryPin.clear();
+            }
+        }
+        if (marked instanceof MarkingResponse markingResponse) {
+            // responses without a body are committed only after the filters
+            markingResponse.mark();
+        }
+    }
+
+    private boolean isPinned(HttpServletRequest request) {
+        if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+            return true;
+        }
+        var until = request.getHeader(READ_PRIMARY_UNTIL);
+        if (until == null) {
+            return false;
+        }
+        try {
+            // the header is sent back by the client, so a window longer than configured isn't honored
+            long left = Long.parseLong(until.trim()) - currentTimeMillis.getAsLong();
+            return left > 0 && left <= window.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Adds the cookie and the header right before the response is committed, when the status is known
+     */
+    private final class MarkingResponse extends HttpServletResponseWrapper {
+        private boolean marked;
+
+        private MarkingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            mark();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            mark();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            mark();
+            super.flushBuffer();
+        }
+
+        private void mark() {
+            if (marked || isCommitted() || getStatus() >= HttpServletResponse.SC_BAD_REQUEST) {
+                return;
+            }
+            marked = true;
+            addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, "1")
+                    .maxAge(Math.max(1, window.toSeconds()))
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build().toString());
+            setHeader(READ_PRIMARY_UNTIL, String.valueOf(currentTimeMillis.getAsLong() + window.toMillis()));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.helendigger.taskapi.replica;
+
+import com.github.helendigger.taskapi.configuration.TaskReplicaProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the replication lag of every replica and takes replicas lagging more than the allowed lag,
+ * or not answering, out of rotation until they catch up. The last measured lag is the task.replica.lag gauge
+ */
+@Slf4j
+public class ReplicaLagChecker {
+    private final ReplicaRoutingDataSource routing;
+    private final TaskReplicaProperties properties;
+    private final Map<String, JdbcTemplate> templates;
+    private final Map<String, Double> lags = new ConcurrentHashMap<>();
+
+    public ReplicaLagChecker(ReplicaRoutingDataSource routing, TaskReplicaProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.routing = routing;
+        this.properties = properties;
+        this.templates = routing.replicas().entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> {
+            var template = new JdbcTemplate(entry.getValue());
+            template.setQueryTimeout((int) Math.max(1, properties.maxLag().toSeconds()));
+            return template;
+        }));
+        templates.keySet().forEach(name -> Gauge.builder("task.replica.lag", lags,
+                        values -> values.getOrDefault(name, Double.NaN))
+                .description("Replication lag of the replica in seconds")
+                .baseUnit("seconds")
+                .tag("replica", name)
+                .register(meterRegistry));
+    }
+
+    @Scheduled(fixedDelayString = "${task.replicas.check-interval:PT5S}")
+    public void check() {
+        templates.forEach((name, template) -> {
+            boolean isHealthy;
+            try {
+                var lag = template.queryForObject(properties.lagQuery(), Double.class);
+                lags.put(name, lag == null ? 0 : lag);
+                isHealthy = lag == null || lag * 1000 <= properties.maxLag().toMillis();
+            } catch (RuntimeException e) {
+                lags.remove(name);
+                isHealthy = false;
+                log.debug("Lag check of replica {} failed", name, e);
+            }
+            if (routing.setHealthy(name, isHealthy)) {
+                log.info("Replica {} is {} rotation, lag {}s", name, isHealthy ? "in" : "out of",
+                        lags.getOrDefault(name, Double.NaN));
+            }
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.helendigger.taskapi.replica;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source of read-only transactions, connections are taken from the healthy replicas in turn.
+ * The primary is used while the current thread is pinned to it or no replica is healthy.
+ * Replicas start unhealthy and are put in rotation by the lag checks
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final Map<String, Boolean> health = new HashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile List<String> healthy = List.of();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.replicas = Map.copyOf(replicas);
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Data source sending read-only transactions to the replicas and everything else to the primary.
+     * Connections are fetched on the first statement, when the transaction has already been marked read-only
+     * @param primary data source of the primary
+     * @param readOnly data source of read-only transactions
+     * @return routing data source
+     */
+    public static DataSource splitting(DataSource primary, ReplicaRoutingDataSource readOnly) {
+        var proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(readOnly);
+        return proxy;
+    }
+
+    public Map<String, DataSource> replicas() {
+        return replicas;
+    }
+
+    /**
+     * Put the replica in or out of rotation
+     * @param name name of the replica
+     * @param isHealthy whether it can serve reads
+     * @return true if the state of the replica has changed
+     */
+    public synchronized boolean setHealthy(String name, boolean isHealthy) {
+        var previous = health.put(name, isHealthy);
+        healthy = replicas.keySet().stream().filter(replica -> health.getOrDefault(replica, false)).sorted().toList();
+        return previous == null || previous != isHealthy;
+    }
+
+    public List<String> healthy() {
+        return healthy;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        var current = healthy;
+        if (PrimaryPin.isPinned() || current.isEmpty()) {
+            return PRIMARY;
+        }
+        return current.get(Math.floorMod(next.getAndIncrement(), current.size()));
+    }
+}
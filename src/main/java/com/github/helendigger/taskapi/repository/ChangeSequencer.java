@@ -0,0 +1,16 @@
+package com.github.helendigger.taskapi.repository;
+
+/**
+ * Assigns change log positions, the cursor of the change feed, in the order the writes became visible.
+ * Ids are taken before the writing transaction commits, so a lower id can show up after a higher one was read.
+ * A position is assigned only once no transaction that could still add a lower one is running,
+ * so the log is append-only when read by position
+ */
+public interface ChangeSequencer {
+    /**
+     * Assign positions to finished changes that don't have one yet, joins the transaction of the caller
+     * @param limit maximum number of changes to sequence
+     * @return number of changes that got a position
+     */
+    int sequence(int limit);
+}
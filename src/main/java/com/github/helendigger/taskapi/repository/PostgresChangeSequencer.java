@@ -0,0 +1,34 @@
+package com.github.helendigger.taskapi.repository;
+
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Sequencer for PostgreSQL. Every change stores the id of its transaction in the txid column,
+ * changes of transactions older than the oldest running one are finished and get the next positions.
+ * Runs of several instances are serialized by an advisory lock, a run that doesn't get it skips,
+ * the instance holding it sequences the same changes.
+ * The columns and the position sequence are created by the db/postgresql migrations
+ */
+@AllArgsConstructor
+public class PostgresChangeSequencer implements ChangeSequencer {
+    // "task_c" in ASCII, any key works as long as all instances use the same
+    private static final long LOCK_KEY = 0x7461736b5f63L;
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(?)";
+    private static final String SEQUENCE_SQL = "UPDATE task_change c SET log_position = s.log_position"
+            + " FROM (SELECT id, nextval('task_change_position_seq') AS log_position"
+            + " FROM (SELECT id FROM task_change"
+            + " WHERE log_position IS NULL AND txid < txid_snapshot_xmin(txid_current_snapshot())"
+            + " ORDER BY txid, id LIMIT ?) finished) s"
+            + " WHERE c.id = s.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int sequence(int limit) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SQL, Boolean.class, LOCK_KEY))) {
+            return 0;
+        }
+        return jdbcTemplate.update(SEQUENCE_SQL, limit);
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.helendigger.taskapi.repository;
+
+import lombok.AllArgsConstructor;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Sequencer for databases without transaction ids, such as H2 in tests and benchmarks.
+ * A change is taken as finished once it is older than the settle time and its id becomes its position,
+ * all settled changes are sequenced at once,
+ * a transaction committing later than that can still be skipped by clients
+ */
+@AllArgsConstructor
+public class SettledChangeSequencer implements ChangeSequencer {
+    private final TaskChangeRepository taskChangeRepository;
+    private final Duration settleTime;
+
+    @Override
+    public int sequence(int limit) {
+        return taskChangeRepository.sequenceRecordedBefore(Instant.now().minus(settleTime));
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.helendigger.taskapi.repository;
+
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.model.TaskChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TaskChangeRepository extends JpaRepository<TaskChange, Long> {
+    /**
+     * Page of the sequenced change log, only pageable size is used, offset must stay 0
+     * @param since position of the last change the client has seen
+     * @param pageable page size
+     * @return changes with position greater than since ordered by position
+     */
+    @Query("SELECT c FROM TaskChange c WHERE c.position > :since ORDER BY c.position")
+    List<TaskChange> findPage(@Param("since") Long since, Pageable pageable);
+
+    @Query("SELECT MIN(c.position) FROM TaskChange c")
+    Long findFirstPosition();
+
+    @Query("SELECT MAX(c.position) FROM TaskChange c")
+    Long findLastPosition();
+
+    /**
+     * Record an update of the given tasks written by a bulk update with one INSERT ... SELECT
+     * @param ids ids of the selected tasks
+     * @param updatedAt update time set by the bulk update, tasks it skipped aren't recorded
+     * @param type type of the change
+     * @param changedAt time of the change
+     * @return number of recorded changes
+     */
+    @Modifying
+    @Query("INSERT INTO TaskChange (taskId, type, changedAt) SELECT t.id, :type, :changedAt FROM Task t"
+            + " WHERE t.id IN :ids AND t.updatedAt = :updatedAt")
+    int insertUpdated(@Param("ids") Collection<Long> ids,
+                      @Param("updatedAt") Instant updatedAt,
+                      @Param("type") ChangeType type,
+                      @Param("changedAt") Instant changedAt);
+
+    /**
+     * Record an update of the tasks due before the given time written by a bulk update with one INSERT ... SELECT
+     * @param dueBefore exclusive due date upper bound after the update
+     * @param updatedAt update time set by the bulk update, tasks it skipped aren't recorded
+     * @param type type of the change
+     * @param changedAt time of the change
+     * @return number of recorded changes
+     */
+    @Modifying
+    @Query("INSERT INTO TaskChange (taskId, type, changedAt) SELECT t.id, :type, :changedAt FROM Task t"
+            + " WHERE t.dueDate < :dueBefore AND t.updatedAt = :updatedAt")
+    int insertUpdatedDueBefore(@Param("dueBefore") LocalDateTime dueBefore,
+                               @Param("updatedAt") Instant updatedAt,
+                               @Param("type") ChangeType type,
+                               @Param("changedAt") Instant changedAt);
+
+    /**
+     * Sequence changes recorded before the given time by their ids
+     * @param before changes recorded before this time get a position
+     * @return number of sequenced changes
+     */
+    @Modifying
+    @Query(value = "UPDATE task_change SET log_position = id WHERE log_position IS NULL AND changed_at < :before",
+            nativeQuery = true)
+    int sequenceRecordedBefore(@Param("before") Instant before);
+
+    /**
+     * Delete changes recorded before the given time, the newest sequenced change is always kept
+     * so the start of the log tells how far it was compacted. Changes without a position are never deleted
+     * @param before changes recorded before this time are deleted
+     * @return number of deleted changes
+     */
+    @Modifying
+    @Query("DELETE FROM TaskChange c WHERE c.changedAt < :before"
+            + " AND c.position < (SELECT MAX(l.position) FROM TaskChange l)")
+    int deleteRecordedBefore(@Param("before") Instant before);
+}
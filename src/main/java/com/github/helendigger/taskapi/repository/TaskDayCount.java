@@ -0,0 +1,12 @@
+package com.github.helendigger.taskapi.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Number of tasks in one completion state due on one day
+ * @param completed completion state
+ * @param dueDay day of the due date
+ * @param count number of tasks
+ */
+public record TaskDayCount(Boolean completed, LocalDate dueDay, Long count) {
+}
@@ -0,0 +1,21 @@
+package com.github.helendigger.taskapi.repository;
+
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+
+import java.util.List;
+
+/**
+ * Task list queries built from the present filters only, so the database plans each combination of filters
+ * on its own instead of one plan with catch-all predicates that can't use the due date index
+ */
+public interface TaskPageQueries {
+    /**
+     * Keyset page of tasks, only the present filters are added to the query
+     * @param after id of the last task of the previous page
+     * @param filter filters to apply
+     * @param limit maximum number of tasks
+     * @return tasks with id greater than after ordered by id
+     */
+    List<TaskDTO> findPage(long after, TaskFilter filter, int limit);
+}
@@ -0,0 +1,43 @@
+package com.github.helendigger.taskapi.repository;
+
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL implementation of the task list queries, picked up by TaskRepository as its fragment
+ */
+public class TaskPageQueriesImpl implements TaskPageQueries {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskDTO> findPage(long after, TaskFilter filter, int limit) {
+        var jpql = new StringBuilder(TaskRepository.SELECT_TASK_DTO + " WHERE t.id > :after");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("after", after);
+        if (filter.completed() != null) {
+            jpql.append(" AND t.completed = :completed");
+            parameters.put("completed", filter.completed());
+        }
+        if (filter.dueFrom() != null) {
+            jpql.append(" AND t.dueDate >= :dueFrom");
+            parameters.put("dueFrom", filter.dueFrom());
+        }
+        if (filter.dueTo() != null) {
+            jpql.append(" AND t.dueDate < :dueTo");
+            parameters.put("dueTo", filter.dueTo());
+        }
+        jpql.append(" ORDER BY t.id");
+        var query = entityManager.createQuery(jpql.toString(), TaskDTO.class).setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+}
@@ -1,14 +1,248 @@
 package com.github.helendigger.taskapi.repository;
 
+import com.github.helendigger.taskapi.dto.TaskDTO;
 import com.github.helendigger.taskapi.model.Task;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+/**
+ * Tasks that are only read are projected straight into DTOs, so no managed entities or dirty checking snapshots
+ * are created for them, entities are loaded only when they are changed.
+ * List queries outside of a transaction run in read-only ones, so they are served by a read replica if there is one
+ */
 @Repository
-public interface TaskRepository extends JpaRepository<Task, Long> {
-    @Query("SELECT t FROM Task t")
-    List<Task> getAll();
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskPageQueries {
+    String SELECT_TASK_DTO = "SELECT new com.github.helendigger.taskapi.dto.TaskDTO(t.id, t.title, t.description,"
+            + " t.dueDate, t.completed, t.version, t.updatedAt) FROM Task t";
+
+    /**
+     * Task by id
+     * @param id id of the task
+     * @return task or empty if not found
+     */
+    @Query(SELECT_TASK_DTO + " WHERE t.id = :id")
+    Optional<TaskDTO> findTaskById(@Param("id") Long id);
+
+    /**
+     * Tasks by ids, absent ids are skipped
+     * @param ids ids of the tasks
+     * @return found tasks in no particular order
+     */
+    @Query(SELECT_TASK_DTO + " WHERE t.id IN :ids")
+    List<TaskDTO> findTasksByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Forward-only stream of all tasks ordered by id, must be consumed and closed inside a transaction.
+     * The persistence context doesn't grow while streaming as no entities are loaded
+     * @return stream of all tasks
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_TASK_DTO + " ORDER BY t.id")
+    Stream<TaskDTO> streamAll();
+
+    /**
+     * Update the present fields of the task with one statement, absent fields keep their values.
+     * The statement text doesn't depend on which fields are present, so it is prepared once
+     * @param id id of the task
+     * @param title new title or null
+     * @param description new description or null
+     * @param dueDate new due date or null
+     * @param completed new completion state or null
+     * @param version version the task must have, null to update any version
+     * @param updatedAt new update time
+     * @return number of updated rows, 0 if the task is absent or has another version
+     */
+    @Modifying
+    @Query("UPDATE Task t SET t.title = COALESCE(:title, t.title),"
+            + " t.description = COALESCE(:description, t.description),"
+            + " t.dueDate = COALESCE(:dueDate, t.dueDate),"
+            + " t.completed = COALESCE(:completed, t.completed),"
+            + " t.version = t.version + 1, t.updatedAt = :updatedAt"
+            + " WHERE t.id = :id AND (:version IS NULL OR t.version = :version)")
+    int updatePresentFields(@Param("id") Long id,
+                            @Param("title") String title,
+                            @Param("description") String description,
+                            @Param("dueDate") LocalDateTime dueDate,
+                            @Param("completed") Boolean completed,
+                            @Param("version") Long version,
+                            @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Keyset page of open tasks ordered by due date and id, only pageable size is used, offset must stay 0
+     * @param afterDue due date of the last task of the previous page
+     * @param afterId id of the last task of the previous page
+     * @param dueBefore exclusive due date upper bound
+     * @param pageable page size
+     * @return open tasks after the given one, due before the bound
+     */
+    @Transactional(readOnly = true)
+    @Query(SELECT_TASK_DTO + " WHERE t.completed = false AND t.dueDate < :dueBefore"
+            + " AND (t.dueDate > :afterDue OR (t.dueDate = :afterDue AND t.id > :afterId))"
+            + " ORDER BY t.dueDate, t.id")
+    List<TaskDTO> findOpenDuePage(@Param("afterDue") LocalDateTime afterDue,
+                                  @Param("afterId") Long afterId,
+                                  @Param("dueBefore") LocalDateTime dueBefore,
+                                  Pageable pageable);
+
+    /**
+     * Open tasks due before the bound ordered by due date and id, only pageable size is used
+     * @param dueBefore exclusive due date upper bound
+     * @param pageable page size
+     * @return open tasks due before the bound, the longest overdue first
+     */
+    @Transactional(readOnly = true)
+    @Query(SELECT_TASK_DTO + " WHERE t.completed = false AND t.dueDate < :dueBefore ORDER BY t.dueDate, t.id")
+    List<TaskDTO> findOpenDueBefore(@Param("dueBefore") LocalDateTime dueBefore, Pageable pageable);
+
+    /**
+     * Ids of the given tasks due before the given time
+     * @param ids ids of the tasks
+     * @param dueBefore exclusive due date upper bound
+     * @return ids of the matching tasks
+     */
+    @Query("SELECT t.id FROM Task t WHERE t.id IN :ids AND t.dueDate < :dueBefore")
+    List<Long> findIdsDueBefore(@Param("ids") Collection<Long> ids, @Param("dueBefore") LocalDateTime dueBefore);
+
+    /**
+     * Set the completion state of the tasks with one statement, tasks already in the state are skipped
+     * @param ids ids of the tasks
+     * @param completed new completion state
+     * @param updatedAt new update time
+     * @return number of updated rows
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.completed = :completed, t.version = t.version + 1, t.updatedAt = :updatedAt"
+            + " WHERE t.id IN :ids AND t.completed <> :completed")
+    int updateCompleted(@Param("ids") Collection<Long> ids,
+                        @Param("completed") Boolean completed,
+                        @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Set the completion state of all tasks due before the given time with one statement,
+     * tasks already in the state are skipped
+     * @param dueBefore exclusive due date upper bound
+     * @param completed new completion state
+     * @param updatedAt new update time
+     * @return number of updated rows
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.completed = :completed, t.version = t.version + 1, t.updatedAt = :updatedAt"
+            + " WHERE t.dueDate < :dueBefore AND t.completed <> :completed")
+    int updateCompletedDueBefore(@Param("dueBefore") LocalDateTime dueBefore,
+                                 @Param("completed") Boolean completed,
+                                 @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Move the due date of the open tasks by whole days with one statement, the date arithmetic runs in the database
+     * @param ids ids of the tasks
+     * @param days number of days to add, may be negative
+     * @param updatedAt new update time
+     * @return number of updated rows
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.dueDate = t.dueDate + (:days) day, t.version = t.version + 1, t.updatedAt = :updatedAt"
+            + " WHERE t.id IN :ids AND t.completed = false")
+    int postpone(@Param("ids") Collection<Long> ids,
+                 @Param("days") long days,
+                 @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Move the due date of all open tasks due before the given time by whole days with one statement
+     * @param dueBefore exclusive due date upper bound
+     * @param days number of days to add, may be negative
+     * @param updatedAt new update time
+     * @return number of updated rows
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Task t SET t.dueDate = t.dueDate + (:days) day, t.version = t.version + 1, t.updatedAt = :updatedAt"
+            + " WHERE t.dueDate < :dueBefore AND t.completed = false")
+    int postponeDueBefore(@Param("dueBefore") LocalDateTime dueBefore,
+                          @Param("days") long days,
+                          @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Keyset page of the tasks due before the given time written by the bulk update with the given update time,
+     * only pageable size is used
+     * @param dueBefore exclusive due date upper bound after the update
+     * @param updatedAt update time set by the bulk update
+     * @param after id of the last task of the previous page, 0 for the first page
+     * @param pageable page size
+     * @return updated tasks ordered by id
+     */
+    @Query(SELECT_TASK_DTO + " WHERE t.dueDate < :dueBefore AND t.updatedAt = :updatedAt AND t.id > :after"
+            + " ORDER BY t.id")
+    List<TaskDTO> findUpdatedDueBefore(@Param("dueBefore") LocalDateTime dueBefore,
+                                       @Param("updatedAt") Instant updatedAt,
+                                       @Param("after") Long after,
+                                       Pageable pageable);
+
+    /**
+     * Count the given tasks grouped by completion state and due day
+     * @param ids ids of the tasks
+     * @return one count per completion state and due day
+     */
+    @Query("SELECT new com.github.helendigger.taskapi.repository.TaskDayCount(t.completed,"
+            + " CAST(t.dueDate AS LocalDate), COUNT(t)) FROM Task t WHERE t.id IN :ids"
+            + " GROUP BY t.completed, CAST(t.dueDate AS LocalDate)")
+    List<TaskDayCount> countByIdsAndDueDay(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Count the given tasks written by the bulk update with the given update time grouped by their new
+     * completion state and due day
+     * @param ids ids of the selected tasks
+     * @param updatedAt update time set by the bulk update
+     * @return one count per completion state and due day
+     */
+    @Query("SELECT new com.github.helendigger.taskapi.repository.TaskDayCount(t.completed,"
+            + " CAST(t.dueDate AS LocalDate), COUNT(t)) FROM Task t WHERE t.id IN :ids AND t.updatedAt = :updatedAt"
+            + " GROUP BY t.completed, CAST(t.dueDate AS LocalDate)")
+    List<TaskDayCount> countUpdatedByDueDay(@Param("ids") Collection<Long> ids,
+                                            @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Count the tasks due before the given time written by the bulk update with the given update time
+     * grouped by their new completion state and due day
+     * @param dueBefore exclusive due date upper bound after the update
+     * @param updatedAt update time set by the bulk update
+     * @return one count per completion state and due day
+     */
+    @Query("SELECT new com.github.helendigger.taskapi.repository.TaskDayCount(t.completed,"
+            + " CAST(t.dueDate AS LocalDate), COUNT(t)) FROM Task t"
+            + " WHERE t.dueDate < :dueBefore AND t.updatedAt = :updatedAt"
+            + " GROUP BY t.completed, CAST(t.dueDate AS LocalDate)")
+    List<TaskDayCount> countUpdatedDueBeforeByDueDay(@Param("dueBefore") LocalDateTime dueBefore,
+                                                     @Param("updatedAt") Instant updatedAt);
+
+    /**
+     * Count tasks grouped by completion state and due day, the whole table is aggregated in the database
+     * @return one count per completion state and due day
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.github.helendigger.taskapi.repository.TaskDayCount(t.completed,"
+            + " CAST(t.dueDate AS LocalDate), COUNT(t)) FROM Task t"
+            + " GROUP BY t.completed, CAST(t.dueDate AS LocalDate)")
+    List<TaskDayCount> countByCompletedAndDueDay();
+
+    @Query("SELECT t.id FROM Task t WHERE t.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,184 @@
+package com.github.helendigger.taskapi.search;
+
+import com.github.helendigger.taskapi.dto.SearchResults;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.replica.PrimaryPin;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import com.github.helendigger.taskapi.service.TaskChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index of task words kept in memory, used where the database has no full-text search.
+ * The index is loaded on the first search and follows committed task changes afterwards,
+ * changes committed while it loads are buffered and applied once the load is done.
+ * Every word maps to the tasks containing it with a score, a word in the title counts more than in the description.
+ * Only ids and words are held, the tasks of a result page are read by id
+ */
+@Slf4j
+public class InMemoryTaskSearch implements TaskSearch {
+    static final int TITLE_WEIGHT = 2;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TaskRepository taskRepository;
+    private final Map<String, Map<Long, Integer>> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String[]> documents = new ConcurrentHashMap<>();
+    // held for the whole load, a lock that doesn't pin a virtual thread to its carrier while pages are read
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private List<TaskChangeDTO> pending;
+    private volatile boolean loaded;
+
+    public InMemoryTaskSearch(TaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    @Override
+    public SearchResults search(String query, int offset, int limit) {
+        if (!loaded) {
+            load();
+        }
+        var terms = words(query).keySet();
+        if (terms.isEmpty()) {
+            return new SearchResults(List.of(), null);
+        }
+        // intersect starting from the rarest word, so the candidate set is as small as possible from the start
+        var termPostings = terms.stream()
+                .map(term -> postings.getOrDefault(term, Map.of()))
+                .sorted(Comparator.comparingInt(Map::size))
+                .toList();
+        Map<Long, Integer> scores = new HashMap<>(termPostings.get(0));
+        for (var posting : termPostings.subList(1, termPostings.size())) {
+            scores.entrySet().removeIf(entry -> !posting.containsKey(entry.getKey()));
+            scores.replaceAll((id, score) -> score + posting.getOrDefault(id, 0));
+        }
+        var ranked = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .skip(offset)
+                .limit(limit + 1L)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (ranked.isEmpty()) {
+            return SearchResults.of(List.of(), offset, limit);
+        }
+        Map<Long, TaskDTO> tasks = taskRepository.findTasksByIds(ranked).stream()
+                .collect(Collectors.toMap(TaskDTO::getId, Function.identity()));
+        var found = ranked.stream()
+                .map(tasks::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return SearchResults.of(found, offset, limit);
+    }
+
+    /**
+     * Apply a committed change to the index. Changes before the load are read by it,
+     * changes during the load are buffered and applied after it
+     * @param event recorded change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTaskChange(TaskChangeEvent event) {
+        if (pending != null) {
+            pending.add(event.change());
+        } else if (loaded) {
+            apply(event.change());
+        }
+    }
+
+    private void load() {
+        loadLock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            try {
+                long after = 0L;
+                while (true) {
+                    long from = after;
+                    // the index is patched only by later writes, it must not miss writes a replica hasn't got yet
+                    var page = PrimaryPin.onPrimary(() -> taskRepository.findPage(from, TaskFilter.NONE,
+                            LOAD_PAGE_SIZE));
+                    // the lock is held per page only, writers aren't blocked for the whole load
+                    synchronized (this) {
+                        page.forEach(this::add);
+                    }
+                    if (page.size() < LOAD_PAGE_SIZE) {
+                        break;
+                    }
+                    after = page.get(page.size() - 1).getId();
+                }
+                synchronized (this) {
+                    // a buffered change was committed before the page holding its task was read or after it,
+                    // applying it again in order leaves the latest state either way
+                    pending.forEach(this::apply);
+                    loaded = true;
+                }
+            } finally {
+                synchronized (this) {
+                    pending = null;
+                }
+            }
+        } finally {
+            loadLock.unlock();
+        }
+        log.info("Search index loaded with {} tasks and {} words", documents.size(), postings.size());
+    }
+
+    private void apply(TaskChangeDTO change) {
+        remove(change.taskId());
+        Optional.ofNullable(change.task()).ifPresent(this::add);
+    }
+
+    private void add(TaskDTO task) {
+        Map<String, Integer> scores = words(task.getTitle());
+        scores.replaceAll((word, count) -> count * TITLE_WEIGHT);
+        words(task.getDescription()).forEach((word, count) -> scores.merge(word, count, Integer::sum));
+        scores.forEach((word, score) -> postings.computeIfAbsent(word, key -> new ConcurrentHashMap<>())
+                .put(task.getId(), score));
+        documents.put(task.getId(), scores.keySet().toArray(String[]::new));
+    }
+
+    private void remove(Long taskId) {
+        var words = documents.remove(taskId);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            postings.computeIfPresent(word, (key, posting) -> {
+                posting.remove(taskId);
+                return posting.isEmpty() ? null : posting;
+            });
+        }
+    }
+
+    static Map<String, Integer> words(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text == null) {
+            return counts;
+        }
+        for (String word : SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                counts.merge(word, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+}
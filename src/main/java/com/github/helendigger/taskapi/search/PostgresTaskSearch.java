@@ -0,0 +1,49 @@
+package com.github.helendigger.taskapi.search;
+
+import com.github.helendigger.taskapi.dto.SearchResults;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Search backed by the search_vector column and its GIN index, both are created by the db/postgresql migrations.
+ * The query is parsed by websearch_to_tsquery, so quotes, "or" and "-" work like in web search engines
+ */
+@AllArgsConstructor
+public class PostgresTaskSearch implements TaskSearch {
+    private static final String SEARCH_SQL = "SELECT id, title, description, due_date, completed, version, updated_at"
+            + " FROM task, websearch_to_tsquery('simple', :query) query"
+            + " WHERE search_vector @@ query"
+            + " ORDER BY ts_rank(search_vector, query) DESC, id"
+            + " LIMIT :limit OFFSET :offset";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional(readOnly = true)
+    public SearchResults search(String query, int offset, int limit) {
+        var parameters = new MapSqlParameterSource()
+                .addValue("query", query)
+                .addValue("limit", limit + 1)
+                .addValue("offset", offset);
+        return SearchResults.of(jdbcTemplate.query(SEARCH_SQL, parameters, PostgresTaskSearch::toTask), offset, limit);
+    }
+
+    private static TaskDTO toTask(ResultSet row, int rowNumber) throws SQLException {
+        return new TaskDTO(row.getLong("id"),
+                row.getString("title"),
+                row.getString("description"),
+                row.getTimestamp("due_date").toLocalDateTime(),
+                row.getBoolean("completed"),
+                row.getLong("version"),
+                Optional.ofNullable(row.getTimestamp("updated_at")).map(Timestamp::toInstant).orElse(null));
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.helendigger.taskapi.search;
+
+import com.github.helendigger.taskapi.dto.SearchResults;
+
+/**
+ * Full-text search over task titles and descriptions, a task matches if it contains every word of the query
+ */
+public interface TaskSearch {
+    /**
+     * Find tasks matching the query, ranked by relevance, matches in the title rank higher
+     * @param query words to search for
+     * @param offset number of best matches to skip
+     * @param limit maximum number of tasks
+     * @return page of matching tasks
+     */
+    SearchResults search(String query, int offset, int limit);
+}
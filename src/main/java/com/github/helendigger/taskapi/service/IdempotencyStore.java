@@ -0,0 +1,126 @@
+package com.github.helendigger.taskapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.helendigger.taskapi.configuration.TaskIdempotencyProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.exception.IdempotencyKeyReusedException;
+import com.github.helendigger.taskapi.exception.IdempotentRequestInProgressException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Results of requests by their idempotency keys, bounded in size and forgotten after the time to live.
+ * Keys are scoped by the client, two clients choosing the same key don't see each other's results.
+ * The body a key was used with is remembered as the SHA-256 of its JSON without the ignored task ids.
+ * Keys are held by this instance only, a retry reaching another instance runs the request again
+ */
+@Component
+@Profile(ProfileConst.NOT_REACTIVE)
+public class IdempotencyStore {
+    private final Cache<Key, Entry> entries;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+
+    public IdempotencyStore(TaskIdempotencyProperties properties, ObjectMapper objectMapper) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.maxKeys())
+                .expireAfterWrite(properties.ttl())
+                .build();
+        this.objectMapper = objectMapper;
+        this.waitTimeout = properties.waitTimeout();
+    }
+
+    /**
+     * Run the action once per key, a repeated request gets the result of the first one.
+     * A request arriving while the first one runs waits for its result instead of running the action again.
+     * A failed action isn't remembered, the next request with the key runs it again
+     * @param client identity of the client sending the request
+     * @param operation name of the operation, the same key of different operations doesn't collide
+     * @param key idempotency key sent by the client
+     * @param request request body, the key can't be reused with another one
+     * @param action action to run
+     * @return result of the action run for the key
+     * @throws IdempotencyKeyReusedException if the key was used with another request body
+     * @throws IdempotentRequestInProgressException if the first request didn't finish within the wait timeout
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String client, String operation, String key, Object request, Supplier<T> action) {
+        var id = new Key(client, operation, key);
+        var fingerprint = fingerprint(request);
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            var entry = new Entry(fingerprint, new CompletableFuture<>());
+            var existing = entries.asMap().putIfAbsent(id, entry);
+            if (existing == null) {
+                return run(id, entry, action);
+            }
+            if (!MessageDigest.isEqual(existing.fingerprint(), fingerprint)) {
+                throw new IdempotencyKeyReusedException(key);
+            }
+            try {
+                return (T) existing.result().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                // the first request failed and its key was forgotten, this one runs the action itself
+            } catch (TimeoutException e) {
+                throw new IdempotentRequestInProgressException(key);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdempotentRequestInProgressException(key);
+            }
+        }
+    }
+
+    private <T> T run(Key id, Entry entry, Supplier<T> action) {
+        try {
+            T result = action.get();
+            entry.result().complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            entries.asMap().remove(id, entry);
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private byte[] fingerprint(Object request) {
+        JsonNode body = objectMapper.valueToTree(request);
+        withoutIds(body);
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Request body can't be fingerprinted", e);
+        }
+    }
+
+    /**
+     * Ids of tasks to create are ignored, a retry differing only in them is the same request
+     */
+    private static void withoutIds(JsonNode body) {
+        if (body instanceof ObjectNode task) {
+            task.remove("id");
+        } else if (body instanceof ArrayNode tasks) {
+            tasks.forEach(IdempotencyStore::withoutIds);
+        }
+    }
+
+    private record Key(String client, String operation, String key) {
+    }
+
+    private record Entry(byte[] fingerprint, CompletableFuture<Object> result) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+
+/**
+ * Application event of a recorded task write
+ * @param change written task, without the task for deletes
+ */
+public record TaskChangeEvent(TaskChangeDTO change) {
+}
@@ -0,0 +1,169 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskChangeProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskChanges;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.model.TaskChange;
+import com.github.helendigger.taskapi.replica.PrimaryPin;
+import com.github.helendigger.taskapi.repository.ChangeSequencer;
+import com.github.helendigger.taskapi.repository.TaskChangeRepository;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Append-only log of task writes and the change feed read from it.
+ * Writes are recorded in the transaction of the write, so the log never misses or invents a change
+ */
+@Slf4j
+@Service
+@Profile(ProfileConst.NOT_REACTIVE)
+@AllArgsConstructor
+public class TaskChangeService {
+    static final int SEQUENCE_BATCH_SIZE = 10_000;
+
+    private final TaskChangeRepository taskChangeRepository;
+    private final TaskRepository taskRepository;
+    private final TaskChangeProperties properties;
+    private final ChangeSequencer changeSequencer;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Record a write of the task, joins the transaction of the caller.
+     * The change is published as a TaskChangeEvent, listeners get it once the transaction commits
+     * @param change written task, without the task for deletes
+     */
+    public void record(TaskChangeDTO change) {
+        taskChangeRepository.save(TaskChange.of(change.taskId(), change.type()));
+        eventPublisher.publishEvent(new TaskChangeEvent(change));
+    }
+
+    /**
+     * Record writes of several tasks, joins the transaction of the caller
+     * @param changes written tasks
+     */
+    public void recordAll(List<TaskChangeDTO> changes) {
+        taskChangeRepository.saveAll(changes.stream().map(change -> TaskChange.of(change.taskId(), change.type()))
+                .toList());
+        publish(changes);
+    }
+
+    /**
+     * Record an update of the given tasks written by a bulk update with one statement, joins the transaction
+     * of the caller. Tasks the update skipped keep their update time and aren't recorded
+     * @param ids ids of the selected tasks
+     * @param updatedAt update time set by the bulk update
+     * @return number of recorded changes
+     */
+    public int recordUpdated(Collection<Long> ids, Instant updatedAt) {
+        return taskChangeRepository.insertUpdated(ids, updatedAt, ChangeType.UPDATED, updatedAt);
+    }
+
+    /**
+     * Record an update of the tasks due before the given time written by a bulk update with one statement,
+     * joins the transaction of the caller
+     * @param dueBefore exclusive due date upper bound after the update
+     * @param updatedAt update time set by the bulk update
+     * @return number of recorded changes
+     */
+    public int recordUpdatedDueBefore(LocalDateTime dueBefore, Instant updatedAt) {
+        return taskChangeRepository.insertUpdatedDueBefore(dueBefore, updatedAt, ChangeType.UPDATED, updatedAt);
+    }
+
+    /**
+     * Publish changes already recorded in the log as TaskChangeEvents
+     * @param changes recorded changes
+     */
+    public void publish(List<TaskChangeDTO> changes) {
+        changes.forEach(change -> eventPublisher.publishEvent(new TaskChangeEvent(change)));
+    }
+
+    /**
+     * Get tasks changed since the cursor. Without a cursor the current end of the log is returned,
+     * a client reads it before the full task list and syncs from it afterwards.
+     * Only sequenced changes are read, a change shows up once its position is assigned.
+     * The log is read on the primary, a client switching between replicas would otherwise get a cursor
+     * from one replica and miss the state behind it on another
+     * @param since position of the last change the client has seen, null to get the current end of the log
+     * @param limit maximum number of log entries to read, clamped to 1..MAX_PAGE_SIZE
+     * @return latest change of each changed task with its current state and the cursor of the next page
+     * @throws ChangeCursorExpiredException if changes after the cursor were compacted
+     */
+    @Transactional(readOnly = true)
+    public TaskChanges getChanges(Long since, int limit) {
+        // the connection is taken on the first statement, so pinning inside the transaction routes it
+        return PrimaryPin.onPrimary(() -> readChanges(since, limit));
+    }
+
+    private TaskChanges readChanges(Long since, int limit) {
+        if (since == null) {
+            return new TaskChanges(List.of(),
+                    Optional.ofNullable(taskChangeRepository.findLastPosition()).orElse(0L), false);
+        }
+        var first = taskChangeRepository.findFirstPosition();
+        if (first != null && since < first - 1) {
+            throw new ChangeCursorExpiredException(since);
+        }
+        int pageSize = Math.max(1, Math.min(limit, TaskService.MAX_PAGE_SIZE));
+        var found = taskChangeRepository.findPage(since, PageRequest.ofSize(pageSize + 1));
+        var page = found.stream().limit(pageSize).toList();
+
+        // a task changed several times is sent once, in the position of its latest change
+        Map<Long, TaskChange> latest = new LinkedHashMap<>();
+        page.forEach(change -> {
+            latest.remove(change.getTaskId());
+            latest.put(change.getTaskId(), change);
+        });
+        Map<Long, TaskDTO> current = taskRepository.findTasksByIds(latest.keySet()).stream()
+                .collect(Collectors.toMap(TaskDTO::getId, Function.identity()));
+        var changes = latest.values().stream().map(change -> Optional.ofNullable(current.get(change.getTaskId()))
+                        .map(task -> new TaskChangeDTO(task.getId(), change.getType(), task))
+                        .orElseGet(() -> new TaskChangeDTO(change.getTaskId(), ChangeType.DELETED, null)))
+                .toList();
+        long cursor = page.isEmpty() ? since : page.get(page.size() - 1).getPosition();
+        return new TaskChanges(changes, cursor, found.size() > pageSize);
+    }
+
+    /**
+     * Assign feed positions to finished changes, at most SEQUENCE_BATCH_SIZE per run
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${task.changes.sequence-interval:PT0.2S}")
+    public void sequence() {
+        int sequenced = changeSequencer.sequence(SEQUENCE_BATCH_SIZE);
+        if (sequenced > 0) {
+            log.trace("Sequenced {} task changes", sequenced);
+        }
+    }
+
+    /**
+     * Delete changes older than the retention, clients with older cursors have to sync from scratch
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${task.changes.compaction-interval:PT1H}",
+            initialDelayString = "${task.changes.compaction-interval:PT1H}")
+    public void compact() {
+        int deleted = taskChangeRepository.deleteRecordedBefore(Instant.now().minus(properties.retention()));
+        log.debug("Compacted {} task changes", deleted);
+    }
+}
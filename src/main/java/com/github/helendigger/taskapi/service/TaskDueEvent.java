@@ -0,0 +1,10 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.dto.TaskDTO;
+
+/**
+ * Application event of an open task reaching its due date
+ * @param task task that became due
+ */
+public record TaskDueEvent(TaskDTO task) {
+}
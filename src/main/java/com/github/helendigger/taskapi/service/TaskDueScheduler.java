@@ -0,0 +1,215 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskDueProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.replica.PrimaryPin;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Emits a TaskDueEvent when an open task reaches its due date.
+ * Open tasks due within the next window are held in memory ordered by due date, every tick fires the head
+ * of the queue. The window is read from the completed, dueDate index when half of it has passed,
+ * and committed changes keep it current, so neither firing nor due queries scan the task table.
+ * The window is read without holding the lock, changes committed meanwhile aren't blocked,
+ * they are remembered and replayed over the read tasks when the new window is swapped in.
+ * Tasks already overdue when the instance starts, and tasks moved into the past, aren't fired.
+ * Writes of other nodes aren't seen until the window is read again, every node fires the tasks of its own window
+ */
+@Slf4j
+@Component
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskDueScheduler {
+    static final int LOAD_PAGE_SIZE = 1000;
+
+    private final TaskRepository taskRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskDueProperties properties;
+    private final Clock clock;
+    private final ConcurrentSkipListMap<DueKey, TaskDTO> upcoming = new ConcurrentSkipListMap<>();
+    private final Map<Long, DueKey> keys = new HashMap<>();
+    private final Counter dueEvents;
+    private volatile LocalDateTime windowEnd;
+    private LocalDateTime firedUntil;
+    // latest state of tasks changed while the window is read, null for deleted ones, null while not reading
+    private Map<Long, TaskDTO> changedDuringRefill;
+
+    @Autowired
+    public TaskDueScheduler(TaskRepository taskRepository, ApplicationEventPublisher eventPublisher,
+                            TaskDueProperties properties, MeterRegistry meterRegistry) {
+        this(taskRepository, eventPublisher, properties, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    TaskDueScheduler(TaskRepository taskRepository, ApplicationEventPublisher eventPublisher,
+                     TaskDueProperties properties, MeterRegistry meterRegistry, Clock clock) {
+        this.taskRepository = taskRepository;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+        this.clock = clock;
+        this.dueEvents = Counter.builder("task.due.events").register(meterRegistry);
+    }
+
+    /**
+     * Refill the window if half of it has passed and fire every held task that is due by now
+     */
+    @Scheduled(fixedDelayString = "${task.due.tick:PT1S}")
+    public void tick() {
+        if (!properties.enabled()) {
+            return;
+        }
+        var now = LocalDateTime.now(clock);
+        LocalDateTime from = null;
+        var until = now.plus(properties.window());
+        synchronized (this) {
+            if (windowEnd == null) {
+                windowEnd = now;
+            }
+            if (changedDuringRefill == null && windowEnd.isBefore(now.plus(properties.window().dividedBy(2)))) {
+                from = windowEnd;
+                changedDuringRefill = new HashMap<>();
+            }
+        }
+        if (from != null) {
+            refill(from, until);
+        }
+        synchronized (this) {
+            firedUntil = now;
+            Map.Entry<DueKey, TaskDTO> head;
+            while ((head = upcoming.firstEntry()) != null && !head.getKey().dueDate().isAfter(now)) {
+                upcoming.remove(head.getKey());
+                keys.remove(head.getKey().id());
+                dueEvents.increment();
+                eventPublisher.publishEvent(new TaskDueEvent(head.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Open tasks due within the given time, held tasks are used when the range is inside the window
+     * @param within how far ahead to look
+     * @param overdue include tasks that are already past their due date
+     * @param limit maximum number of tasks
+     * @return open tasks ordered by due date
+     */
+    public List<TaskDTO> getDueTasks(Duration within, boolean overdue, int limit) {
+        var now = LocalDateTime.now(clock);
+        var until = now.plus(within);
+        var end = windowEnd;
+        if (properties.enabled() && !overdue && end != null && !until.isAfter(end)) {
+            return upcoming.headMap(new DueKey(until, 0L)).values().stream().limit(limit).toList();
+        }
+        return overdue
+                ? taskRepository.findOpenDueBefore(until, PageRequest.ofSize(limit))
+                : taskRepository.findOpenDuePage(now, 0L, until, PageRequest.ofSize(limit));
+    }
+
+    public int size() {
+        return upcoming.size();
+    }
+
+    /**
+     * Move a changed task in or out of the window
+     * @param event recorded change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTaskChange(TaskChangeEvent event) {
+        if (windowEnd == null) {
+            return;
+        }
+        if (changedDuringRefill != null) {
+            changedDuringRefill.put(event.change().taskId(), event.change().task());
+        }
+        apply(event.change().taskId(), event.change().task());
+    }
+
+    /**
+     * Read the tasks due between the current and the new window end outside the lock and swap them in.
+     * A task changed meanwhile may have been read in its old state, its latest change is applied instead
+     */
+    private void refill(LocalDateTime from, LocalDateTime until) {
+        try {
+            var loaded = new ArrayList<TaskDTO>();
+            var afterDue = from;
+            long afterId = 0L;
+            while (true) {
+                var pageFrom = afterDue;
+                var pageAfterId = afterId;
+                // the window is patched only by later writes, it must not miss writes a replica hasn't got yet
+                var page = PrimaryPin.onPrimary(() -> taskRepository.findOpenDuePage(pageFrom, pageAfterId, until,
+                        PageRequest.ofSize(LOAD_PAGE_SIZE)));
+                loaded.addAll(page);
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+                afterDue = page.get(page.size() - 1).getDueDate();
+                afterId = page.get(page.size() - 1).getId();
+            }
+            synchronized (this) {
+                loaded.stream().filter(task -> !changedDuringRefill.containsKey(task.getId())).forEach(this::add);
+                windowEnd = until;
+                changedDuringRefill.forEach(this::apply);
+                log.debug("Due window moved to {}, {} tasks held", until, upcoming.size());
+            }
+        } finally {
+            synchronized (this) {
+                changedDuringRefill = null;
+            }
+        }
+    }
+
+    /**
+     * Hold the changed task if it is open and due within the window and not fired yet, drop it otherwise
+     */
+    private void apply(Long taskId, TaskDTO task) {
+        remove(taskId);
+        if (task != null && Boolean.FALSE.equals(task.getCompleted()) && task.getDueDate() != null
+                && task.getDueDate().isBefore(windowEnd)
+                && (firedUntil == null || task.getDueDate().isAfter(firedUntil))) {
+            add(task);
+        }
+    }
+
+    private void add(TaskDTO task) {
+        remove(task.getId());
+        var key = new DueKey(task.getDueDate(), task.getId());
+        keys.put(task.getId(), key);
+        upcoming.put(key, task);
+    }
+
+    private void remove(Long taskId) {
+        var key = keys.remove(taskId);
+        if (key != null) {
+            upcoming.remove(key);
+        }
+    }
+
+    private record DueKey(LocalDateTime dueDate, long id) implements Comparable<DueKey> {
+        private static final Comparator<DueKey> ORDER = Comparator.comparing(DueKey::dueDate)
+                .thenComparingLong(DueKey::id);
+
+        @Override
+        public int compareTo(DueKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.github.helendigger.taskapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.helendigger.taskapi.configuration.TaskStreamProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskChanges;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.exception.TaskStreamFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Fan-out of task changes to server-sent event streams.
+ * Changes are read from the sequenced change log by one poller and sent with their feed position as id,
+ * so every node streams the writes of all nodes and ids always resume without gaps.
+ * An open stream is an async request, it holds no thread while waiting. Every event is serialized once
+ * and queued per live subscriber, a few sender threads drain the queues one subscriber at a time.
+ * A subscriber whose queue is full is disconnected instead of losing events, the client reconnects with
+ * Last-Event-ID and the missed changes are replayed from the change log.
+ * A replay is sent page by page and nothing is queued for the subscriber meanwhile,
+ * it joins the live subscribers once it reached the cursor of the poller.
+ * Tasks becoming due are pushed to live subscribers as due events
+ */
+@Slf4j
+@Component
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskEventStream {
+    static final String CHANGE_EVENT = "task";
+    static final String RESET_EVENT = "reset";
+    static final String DUE_EVENT = "due";
+
+    private final TaskChangeService taskChangeService;
+    private final ObjectMapper objectMapper;
+    private final TaskStreamProperties properties;
+    private final Executor executor;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> live = ConcurrentHashMap.newKeySet();
+    private final Counter slowDisconnects;
+    // position of the last change sent to live subscribers, null while there are none
+    private final Object liveLock = new Object();
+    private Long liveCursor;
+
+    @Autowired
+    public TaskEventStream(TaskChangeService taskChangeService, ObjectMapper objectMapper,
+                           TaskStreamProperties properties, MeterRegistry meterRegistry) {
+        this(taskChangeService, objectMapper, properties, meterRegistry,
+                Executors.newFixedThreadPool(properties.senderThreads(), new CustomizableThreadFactory("task-stream-")));
+    }
+
+    TaskEventStream(TaskChangeService taskChangeService, ObjectMapper objectMapper,
+                    TaskStreamProperties properties, MeterRegistry meterRegistry, Executor executor) {
+        this.taskChangeService = taskChangeService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.executor = executor;
+        Gauge.builder("task.stream.subscribers", subscribers, Set::size).register(meterRegistry);
+        this.slowDisconnects = Counter.builder("task.stream.disconnects").tag("reason", "slow")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a stream of task changes
+     * @param lastEventId id of the last event the client got, changes after it are replayed first, null to start now
+     * @return stream of task events, a reset event tells the client to sync from scratch
+     * @throws TaskStreamFullException if the number of subscribers reached the limit
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (subscribers.size() >= properties.maxSubscribers()) {
+            throw new TaskStreamFullException(properties.maxSubscribers());
+        }
+        var subscriber = new Subscriber(new SseEmitter(properties.timeout().toMillis()), properties.bufferSize());
+        subscriber.emitter.onCompletion(() -> remove(subscriber));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(error -> remove(subscriber));
+        if (lastEventId == null) {
+            withLiveCursor(() -> {
+                subscribers.add(subscriber);
+                return live.add(subscriber);
+            });
+        } else {
+            subscribers.add(subscriber);
+            execute(subscriber, () -> replay(subscriber, lastEventId));
+        }
+        return subscriber.emitter;
+    }
+
+    public int subscribers() {
+        return subscribers.size();
+    }
+
+    /**
+     * Send changes sequenced since the last poll to the live subscribers
+     */
+    @Scheduled(fixedDelayString = "${task.stream.poll-interval:PT0.2S}")
+    public void poll() {
+        boolean hasMore = true;
+        while (hasMore) {
+            Long from;
+            synchronized (liveLock) {
+                if (live.isEmpty()) {
+                    // the next subscriber starts at the end of the log, not where the last one left
+                    liveCursor = null;
+                    return;
+                }
+                from = liveCursor;
+            }
+            TaskChanges page;
+            List<Set<ResponseBodyEmitter.DataWithMediaType>> events;
+            try {
+                page = taskChangeService.getChanges(from, TaskService.MAX_PAGE_SIZE);
+                events = changeEvents(page);
+            } catch (ChangeCursorExpiredException e) {
+                log.warn("Task stream fell behind the change log compaction, live subscribers are reset", e);
+                synchronized (liveLock) {
+                    live.forEach(subscriber -> reset(subscriber, e));
+                    liveCursor = null;
+                }
+                return;
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("Task changes after {} can't be streamed", from, e);
+                return;
+            }
+            synchronized (liveLock) {
+                // subscribers joining meanwhile joined at the same cursor
+                live.forEach(subscriber -> events.forEach(event -> offer(subscriber, event)));
+                liveCursor = page.cursor();
+            }
+            hasMore = page.hasMore();
+        }
+    }
+
+    /**
+     * Queue the task that became due for every live subscriber,
+     * due events have no id as they aren't in the change log
+     * @param event due task
+     */
+    @EventListener
+    public void onTaskDue(TaskDueEvent event) {
+        if (live.isEmpty()) {
+            return;
+        }
+        try {
+            var built = SseEmitter.event().name(DUE_EVENT).data(objectMapper.writeValueAsString(event.task())).build();
+            live.forEach(subscriber -> offer(subscriber, built));
+        } catch (JsonProcessingException e) {
+            log.warn("Due task {} can't be serialized", event.task().getId(), e);
+        }
+    }
+
+    /**
+     * Comment sent to idle streams, so connections closed by the client or a proxy are noticed
+     */
+    @Scheduled(fixedRateString = "${task.stream.heartbeat:PT15S}")
+    public void heartbeat() {
+        var built = SseEmitter.event().comment("").build();
+        live.forEach(subscriber -> offer(subscriber, built));
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        live.clear();
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Send one page of changes after the cursor, the next page is sent by a new task,
+     * so long replays don't hold a sender thread. The subscriber goes live once the page reached the live cursor
+     */
+    private void replay(Subscriber subscriber, long cursor) {
+        if (!subscribers.contains(subscriber)) {
+            return;
+        }
+        long next;
+        try {
+            var page = taskChangeService.getChanges(cursor, TaskService.MAX_PAGE_SIZE);
+            for (var event : changeEvents(page)) {
+                subscriber.emitter.send(event);
+            }
+            next = page.cursor();
+            if (!page.hasMore() && join(subscriber, next)) {
+                return;
+            }
+        } catch (ChangeCursorExpiredException e) {
+            reset(subscriber, e);
+            return;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Task stream replay failed", e);
+            disconnect(subscriber);
+            return;
+        }
+        execute(subscriber, () -> replay(subscriber, next));
+    }
+
+    /**
+     * Make the subscriber live if it got every change up to the live cursor
+     * @return false if the poller is further and the replay has to go on
+     */
+    private boolean join(Subscriber subscriber, long cursor) {
+        return withLiveCursor(() -> {
+            if (cursor < liveCursor) {
+                return false;
+            }
+            // a cursor past the live one gets a few changes again, clients apply them by task id
+            if (subscribers.contains(subscriber)) {
+                live.add(subscriber);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Run the action with the live lock held and live streaming started, at the current end of the log
+     * if it wasn't started yet. The end of the log is read outside the lock, publishing never waits for the query
+     */
+    private <T> T withLiveCursor(Supplier<T> action) {
+        Long end = null;
+        while (true) {
+            synchronized (liveLock) {
+                if (liveCursor == null) {
+                    liveCursor = end;
+                }
+                if (liveCursor != null) {
+                    return action.get();
+                }
+            }
+            end = taskChangeService.getChanges(null, 0).cursor();
+        }
+    }
+
+    private void offer(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (!subscriber.queue.offer(event)) {
+            slowDisconnects.increment();
+            disconnect(subscriber);
+            return;
+        }
+        if (subscriber.sending.compareAndSet(false, true)) {
+            execute(subscriber, () -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            disconnect(subscriber);
+            return;
+        }
+        subscriber.sending.set(false);
+        // an event queued after the last poll but before the flag was cleared has to be drained as well
+        if (!subscriber.queue.isEmpty() && subscriber.sending.compareAndSet(false, true)) {
+            execute(subscriber, () -> drain(subscriber));
+        }
+    }
+
+    private void execute(Subscriber subscriber, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            disconnect(subscriber);
+        }
+    }
+
+    private void reset(Subscriber subscriber, ChangeCursorExpiredException e) {
+        try {
+            subscriber.emitter.send(SseEmitter.event().name(RESET_EVENT).data(e.getMessage()));
+        } catch (IOException | IllegalStateException ignored) {
+            // the client is gone, nothing to reset
+        }
+        disconnect(subscriber);
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            subscriber.queue.clear();
+            subscriber.emitter.complete();
+        }
+    }
+
+    private boolean remove(Subscriber subscriber) {
+        live.remove(subscriber);
+        return subscribers.remove(subscriber);
+    }
+
+    /**
+     * Serialize the changes of a page, changes are merged per task, so only the end of the page is a valid cursor
+     */
+    private List<Set<ResponseBodyEmitter.DataWithMediaType>> changeEvents(TaskChanges page)
+            throws JsonProcessingException {
+        var changes = page.changes();
+        var events = new ArrayList<Set<ResponseBodyEmitter.DataWithMediaType>>(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            var builder = SseEmitter.event().name(CHANGE_EVENT).data(objectMapper.writeValueAsString(changes.get(i)));
+            if (i == changes.size() - 1) {
+                builder.id(String.valueOf(page.cursor()));
+            }
+            events.add(builder.build());
+        }
+        return events;
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new LinkedBlockingQueue<>(bufferSize);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.helendigger.taskapi.configuration.TaskIngestionProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.IngestionStatus;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.exception.TaskIngestionUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind creation of tasks. Tasks are put on a bounded queue and the request returns right away,
+ * one writer thread creates them in batches, a batch is written when it is full or its first task waited max delay.
+ * A full queue rejects new tasks instead of blocking the request.
+ * A batch failed by a transient database error, a lost connection or a timeout, stays queued and is retried
+ * with backoff, other errors fail only the tasks that cause them.
+ * On shutdown new tasks are rejected and the queue is drained before the database is closed,
+ * tasks still queued when the process dies are lost together with their statuses
+ */
+@Slf4j
+@Component
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskIngestion implements SmartLifecycle {
+    // stopped after the web server, tasks accepted while it finishes the last requests are still written
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    static final String CONSTRAINT_VIOLATED = "Task violates a database constraint";
+    static final String NOT_WRITTEN = "Task couldn't be written";
+
+    private final TaskService taskService;
+    private final TaskIngestionProperties properties;
+    private final BlockingQueue<Pending> queue;
+    private final Map<String, Pending> queued = new ConcurrentHashMap<>();
+    private final Cache<String, IngestionStatus> finished;
+    private final Counter rejected;
+    private final Counter failed;
+    private final Counter retried;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writer;
+
+    public TaskIngestion(TaskService taskService, TaskIngestionProperties properties, MeterRegistry meterRegistry) {
+        this.taskService = taskService;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+        this.finished = Caffeine.newBuilder()
+                .maximumSize(properties.maxStatuses())
+                .expireAfterWrite(properties.statusTtl())
+                .build();
+        Gauge.builder("task.ingestion.queue", queue, Collection::size)
+                .description("Tasks waiting to be written")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("task.ingestion.rejected")
+                .description("Tasks rejected because the queue was full")
+                .register(meterRegistry);
+        this.failed = Counter.builder("task.ingestion.failed")
+                .description("Queued tasks that couldn't be written")
+                .register(meterRegistry);
+        this.retried = Counter.builder("task.ingestion.retried")
+                .description("Batches written again after a transient database error")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue the task for creation
+     * @param task valid task to create
+     * @return queued status with the tracking id
+     * @throws TaskIngestionUnavailableException if the queue is full or the service is stopping
+     */
+    public IngestionStatus submit(TaskDTO task) {
+        if (!accepting) {
+            throw new TaskIngestionUnavailableException("Task ingestion is stopped, retry later");
+        }
+        var pending = new Pending(UUID.randomUUID().toString(), task);
+        queued.put(pending.trackingId(), pending);
+        if (!queue.offer(pending)) {
+            queued.remove(pending.trackingId());
+            rejected.increment();
+            throw new TaskIngestionUnavailableException(
+                    "Task ingestion queue reached " + properties.queueCapacity() + " tasks, retry later");
+        }
+        return IngestionStatus.queued(pending.trackingId());
+    }
+
+    /**
+     * Status of a queued task
+     * @param trackingId tracking id returned when the task was queued
+     * @return status or empty if the id is unknown or its status has expired
+     */
+    public Optional<IngestionStatus> status(String trackingId) {
+        if (queued.containsKey(trackingId)) {
+            return Optional.of(IngestionStatus.queued(trackingId));
+        }
+        return Optional.ofNullable(finished.getIfPresent(trackingId));
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        accepting = true;
+        writer = new CustomizableThreadFactory("task-ingestion-").newThread(this::drain);
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        accepting = false;
+        running = false;
+        try {
+            writer.join(properties.shutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.error("Task ingestion didn't drain within {}, {} queued tasks are lost",
+                    properties.shutdownTimeout(), queue.size());
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drain() {
+        var batch = new ArrayList<Pending>(properties.batchSize());
+        try {
+            while (running || !queue.isEmpty()) {
+                var first = queue.poll(properties.maxDelay().toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + properties.maxDelay().toNanos();
+                while (batch.size() < properties.batchSize()) {
+                    queue.drainTo(batch, properties.batchSize() - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= properties.batchSize() || left <= 0 || !running) {
+                        break;
+                    }
+                    var next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Create the batch in one transaction. A transient failure is retried until the batch is written,
+     * the tasks stay queued meanwhile. A batch failed otherwise is written task by task,
+     * so one bad task doesn't fail the others
+     * @param batch queued tasks
+     * @throws InterruptedException if the writer is interrupted while waiting for a retry
+     */
+    private void write(List<Pending> batch) throws InterruptedException {
+        long backoff = properties.retryBackoff().toMillis();
+        while (true) {
+            try {
+                var ids = taskService.createTasks(batch.stream().map(Pending::task).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    finish(IngestionStatus.created(batch.get(i).trackingId(), ids.get(i)));
+                }
+                return;
+            } catch (RuntimeException e) {
+                if (isTransient(e)) {
+                    log.warn("Failed to create a batch of {} queued tasks, retrying in {} ms", batch.size(), backoff, e);
+                    retried.increment();
+                    Thread.sleep(backoff);
+                    backoff = Math.min(backoff * 2, properties.maxRetryBackoff().toMillis());
+                    continue;
+                }
+                if (batch.size() > 1) {
+                    log.warn("Failed to create a batch of {} queued tasks, creating them one by one", batch.size(), e);
+                    for (var pending : batch) {
+                        write(List.of(pending));
+                    }
+                    return;
+                }
+                log.warn("Failed to create queued task {}", batch.get(0).trackingId(), e);
+                failed.increment();
+                // the message of the error may carry SQL and values of other rows, the client gets a fixed reason
+                finish(IngestionStatus.failed(batch.get(0).trackingId(),
+                        e instanceof DataIntegrityViolationException ? CONSTRAINT_VIOLATED : NOT_WRITTEN));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Errors that may pass on their own, the statement is worth repeating
+     * @param e error of the write
+     * @return true if the error or one of its causes is transient
+     */
+    static boolean isTransient(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void finish(IngestionStatus status) {
+        // the finished status is visible before the queued one is removed, a status read never misses both
+        finished.put(status.trackingId(), status);
+        queued.remove(status.trackingId());
+    }
+
+    private record Pending(String trackingId, TaskDTO task) {
+    }
+}
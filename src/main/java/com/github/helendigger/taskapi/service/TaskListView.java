@@ -0,0 +1,389 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskViewProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.TaskChanges;
+import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.replica.PrimaryPin;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-through in-memory view of the unfiltered task list ordered by id.
+ * It is loaded in the background after the first read and then patched by every write after the write is committed,
+ * so list reads never go back to the database after a single change. Reads are served by the database until
+ * the load finishes. Writes committed while loading are patched in right away and merged with the loaded rows
+ * by the task version, an older version never replaces a newer one, and a task removed while loading isn't loaded.
+ * A view grown above the max size is dropped and loaded again once the table shrinks back.
+ * Writes of other nodes are read from the change log in batches, one read per sync interval however many
+ * tasks they wrote, the writes of this node come back from the log too and are skipped by their version.
+ * Patches are applied under the shared lock, only dropping or resetting the view takes the exclusive one.
+ */
+@Slf4j
+@Component
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskListView {
+    static final int LOAD_PAGE_SIZE = 1000;
+    /**
+     * Share of the max size the table has to shrink to before a dropped view is loaded again,
+     * a table hovering around the max size doesn't load and drop the view over and over
+     */
+    static final double RESUME_RATIO = 0.9;
+
+    private enum State { EMPTY, LOADING, LOADED, TOO_LARGE, OFF }
+
+    private final TaskRepository taskRepository;
+    private final TaskChangeService taskChangeService;
+    private final int maxSize;
+    private final Executor executor;
+    private final ConcurrentSkipListMap<Long, TaskDTO> tasks = new ConcurrentSkipListMap<>();
+    // ids removed while loading, a page read before the removal must not bring the task back
+    private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong revision = new AtomicLong();
+    private final Object stateLock = new Object();
+    private volatile String epoch;
+    private volatile State state;
+    // position of the last change log entry applied to the loaded view
+    private volatile long cursor;
+
+    @Autowired
+    public TaskListView(TaskRepository taskRepository, TaskChangeService taskChangeService,
+                        TaskViewProperties properties) {
+        this(taskRepository, taskChangeService, properties,
+                Executors.newSingleThreadExecutor(new CustomizableThreadFactory("task-view-")));
+    }
+
+    TaskListView(TaskRepository taskRepository, TaskChangeService taskChangeService, TaskViewProperties properties,
+                 Executor executor) {
+        this.taskRepository = taskRepository;
+        this.taskChangeService = taskChangeService;
+        this.maxSize = properties.maxSize();
+        this.executor = executor;
+        this.state = properties.enabled() ? State.EMPTY : State.OFF;
+    }
+
+    /**
+     * Get one page of the unfiltered task list from memory, the first read starts loading the view.
+     * Filtered pages aren't served, scanning the view for a selective filter costs more than its index in the database
+     * @param after id of the last task of the previous page
+     * @param pageSize size of the page
+     * @return page of tasks or empty if the view is not available and the database has to be used
+     */
+    public Optional<Tasks> page(long after, int pageSize) {
+        if (state == State.EMPTY) {
+            startLoad();
+        }
+        if (state != State.LOADED) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        var page = new ArrayList<TaskDTO>(pageSize);
+        Long nextCursor = null;
+        for (TaskDTO task : tasks.tailMap(after, false).values()) {
+            if (page.size() == pageSize) {
+                nextCursor = page.get(pageSize - 1).getId();
+                break;
+            }
+            page.add(task);
+        }
+        return Optional.of(new Tasks(page, nextCursor));
+    }
+
+    /**
+     * Get one task held by the view
+     * @param id id of the task
+     * @return task or empty if the view isn't loaded or doesn't have the task
+     */
+    public Optional<TaskDTO> get(long id) {
+        return state == State.LOADED ? Optional.ofNullable(tasks.get(id)) : Optional.empty();
+    }
+
+    /**
+     * Tag of the current content, unique across loads and restarts of the view
+     * @return tag or empty if the view isn't loaded
+     */
+    public Optional<String> tag() {
+        return state == State.LOADED ? Optional.of(epoch + "-" + revision.get()) : Optional.empty();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Insert or replace the task once the current transaction commits
+     * @param task full state of the task
+     */
+    public void put(TaskDTO task) {
+        afterCommit(() -> merge(task));
+    }
+
+    /**
+     * Remove the task once the current transaction commits
+     * @param taskId id of the removed task
+     */
+    public void remove(Long taskId) {
+        afterCommit(() -> {
+            if (state == State.LOADING) {
+                removed.add(taskId);
+            }
+            delete(taskId);
+        });
+    }
+
+    /**
+     * Apply the changes logged since the last sync, so writes of other nodes show up in the view.
+     * A task deleted here while its older state was read from the log is removed again by the next sync,
+     * the delete is logged after the state that was read. A view behind the compacted log is loaded again
+     */
+    @Scheduled(fixedDelayString = "${task.view.sync-interval:PT1S}")
+    public void sync() {
+        boolean hasMore = true;
+        while (hasMore && state == State.LOADED) {
+            long from = cursor;
+            TaskChanges page;
+            try {
+                page = taskChangeService.getChanges(from, TaskService.MAX_PAGE_SIZE);
+            } catch (ChangeCursorExpiredException e) {
+                log.warn("Task list view fell behind the change log compaction, loading it again", e);
+                reset(State.LOADED);
+                return;
+            }
+            lock.readLock().lock();
+            try {
+                if (state != State.LOADED || cursor != from) {
+                    return;
+                }
+                for (var change : page.changes()) {
+                    if (change.task() == null) {
+                        delete(change.taskId());
+                    } else {
+                        merge(change.task());
+                    }
+                }
+                if (!page.changes().isEmpty()) {
+                    revision.incrementAndGet();
+                }
+                cursor = page.cursor();
+            } finally {
+                lock.readLock().unlock();
+            }
+            hasMore = page.hasMore();
+        }
+    }
+
+    private void afterCommit(Runnable patch) {
+        Runnable guarded = () -> {
+            lock.readLock().lock();
+            try {
+                if (isPatched()) {
+                    patch.run();
+                    revision.incrementAndGet();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+
+    /**
+     * Load the view again once a dropped view would fit, the next read starts the load
+     */
+    @Scheduled(fixedDelayString = "${task.view.recheck-interval:PT5M}")
+    public void recheck() {
+        if (state != State.TOO_LARGE) {
+            return;
+        }
+        long count = PrimaryPin.onPrimary(taskRepository::count);
+        if (count > maxSize * RESUME_RATIO) {
+            return;
+        }
+        log.info("Task list view fits again with {} tasks, loading it on the next read", count);
+        reset(State.TOO_LARGE);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private boolean isPatched() {
+        var current = state;
+        return current == State.LOADING || current == State.LOADED;
+    }
+
+    private void merge(TaskDTO task) {
+        boolean[] added = {false};
+        tasks.compute(task.getId(), (id, existing) -> {
+            added[0] = existing == null;
+            return existing == null || isNotOlder(task, existing) ? task : existing;
+        });
+        if (added[0] && size.incrementAndGet() > maxSize) {
+            drop();
+        }
+    }
+
+    private void delete(Long taskId) {
+        if (tasks.remove(taskId) != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    private void startLoad() {
+        synchronized (stateLock) {
+            if (state != State.EMPTY) {
+                return;
+            }
+            state = State.LOADING;
+        }
+        try {
+            executor.execute(this::load);
+        } catch (RejectedExecutionException e) {
+            // shutting down, reads keep going to the database
+            state = State.EMPTY;
+        }
+    }
+
+    /**
+     * Read the table page by page without blocking patches, each page is merged like a patch is
+     */
+    private void load() {
+        try {
+            // changes logged from now on are applied after the load, the ones the pages already have are skipped
+            long start = taskChangeService.getChanges(null, 0).cursor();
+            long after = 0L;
+            while (state == State.LOADING) {
+                long from = after;
+                // the view is patched only by later writes, it must not miss writes a replica hasn't got yet
+                List<TaskDTO> page = PrimaryPin.onPrimary(() -> taskRepository.findPage(from, TaskFilter.NONE,
+                        LOAD_PAGE_SIZE));
+                lock.readLock().lock();
+                try {
+                    if (state != State.LOADING) {
+                        return;
+                    }
+                    for (TaskDTO task : page) {
+                        if (!removed.contains(task.getId())) {
+                            merge(task);
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    finishLoad(start);
+                    return;
+                }
+                after = page.get(page.size() - 1).getId();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Task list view failed to load, loading it again on the next read", e);
+            reset(State.LOADING);
+        }
+    }
+
+    private void finishLoad(long start) {
+        lock.writeLock().lock();
+        try {
+            if (state == State.LOADING) {
+                removed.clear();
+                cursor = start;
+                epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+                state = State.LOADED;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clear the view, the next read loads it again
+     * @param expected state the view is reset from, it is left as is if it changed meanwhile
+     */
+    private void reset(State expected) {
+        lock.writeLock().lock();
+        try {
+            if (state == expected) {
+                clear();
+                state = State.EMPTY;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop the view grown above the max size, called under the shared lock by the patch that grew it
+     */
+    private void drop() {
+        if (state == State.TOO_LARGE) {
+            return;
+        }
+        log.warn("Task list view exceeded {} tasks, reading task pages from the database", maxSize);
+        state = State.TOO_LARGE;
+        clear();
+    }
+
+    private void clear() {
+        tasks.clear();
+        removed.clear();
+        size.set(0);
+    }
+
+    private static boolean isNotOlder(TaskDTO task, TaskDTO existing) {
+        return task.getVersion() == null || existing.getVersion() == null || task.getVersion() >= existing.getVersion();
+    }
+}
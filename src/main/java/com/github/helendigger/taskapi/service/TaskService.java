@@ -1,69 +1,490 @@
 package com.github.helendigger.taskapi.service;
 
+import com.github.helendigger.taskapi.constant.CacheConst;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.SearchResults;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
 import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.TaskSelection;
+import com.github.helendigger.taskapi.dto.TaskStats;
 import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.exception.TaskNotFoundException;
+import com.github.helendigger.taskapi.exception.TaskVersionMismatchException;
+import com.github.helendigger.taskapi.model.ChangeType;
 import com.github.helendigger.taskapi.model.Task;
 import com.github.helendigger.taskapi.repository.TaskRepository;
-import jakarta.transaction.Transactional;
+import com.github.helendigger.taskapi.search.TaskSearch;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Profile(ProfileConst.NOT_REACTIVE)
 @AllArgsConstructor
 public class TaskService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_SEARCH_OFFSET = 10000;
+    public static final int MAX_POSTPONE_DAYS = 3650;
+    static final int BULK_CHUNK_SIZE = 1000;
 
     private final TaskRepository taskRepository;
+    private final TaskListView taskListView;
+    private final CacheManager cacheManager;
+    private final TaskChangeService taskChangeService;
+    private final TaskSearch taskSearch;
+    private final TaskDueScheduler taskDueScheduler;
+    private final TaskStatistics taskStatistics;
 
-    public Tasks getAllTasks() {
-        return new Tasks(taskRepository.getAll().stream()
-                .map(TaskService::convertFromTask).collect(Collectors.toList()));
+    /**
+     * Get one page of tasks ordered by id using keyset pagination.
+     * Unfiltered pages are served by the in-memory list view, the database is used while the view is unavailable.
+     * Filtered pages are read from the database, its indexes keep them as fast as unfiltered ones
+     * @param filter filters to apply
+     * @param after id of the last task of the previous page, null for the first page
+     * @param limit requested page size, clamped to 1..MAX_PAGE_SIZE
+     * @return page of tasks with the cursor of the next page if there is one
+     */
+    public Tasks getTasks(TaskFilter filter, Long after, int limit) {
+        int pageSize = pageSize(limit);
+        long cursor = cursor(after);
+        if (!TaskFilter.NONE.equals(filter)) {
+            return getTasksFromDatabase(filter, cursor, pageSize);
+        }
+        return taskListView.page(cursor, pageSize)
+                .orElseGet(() -> getTasksFromDatabase(filter, cursor, pageSize));
     }
 
+    private Tasks getTasksFromDatabase(TaskFilter filter, long after, int pageSize) {
+        // one extra row tells whether the next page exists without a count query
+        var found = taskRepository.findPage(after, filter, pageSize + 1);
+        List<TaskDTO> page = found.stream().limit(pageSize).collect(Collectors.toList());
+        Long nextCursor = found.size() > pageSize ? page.get(page.size() - 1).getId() : null;
+        return new Tasks(page, nextCursor);
+    }
+
+    /**
+     * Full-text search over titles and descriptions
+     * @param query words every found task contains
+     * @param offset number of best matches to skip, at most MAX_SEARCH_OFFSET
+     * @param limit requested page size, clamped to 1..MAX_PAGE_SIZE
+     * @return page of tasks, best match first
+     */
+    public SearchResults searchTasks(String query, int offset, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return taskSearch.search(query, Math.max(0, Math.min(offset, MAX_SEARCH_OFFSET)), pageSize);
+    }
+
+    /**
+     * Open tasks due within the given time without scanning the task table
+     * @param within how far ahead to look
+     * @param overdue include tasks that are already past their due date
+     * @param limit requested number of tasks, clamped to 1..MAX_PAGE_SIZE
+     * @return open tasks ordered by due date
+     */
+    public Tasks getDueTasks(Duration within, boolean overdue, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return new Tasks(taskDueScheduler.getDueTasks(within, overdue, pageSize));
+    }
+
+    /**
+     * Task counts kept in memory, the task table isn't read
+     * @param days number of days starting from today in the due histogram, clamped to 1..MAX_DAYS
+     * @return task counts
+     */
+    public TaskStats getStats(int days) {
+        return taskStatistics.getStats(Math.max(1, Math.min(days, TaskStatistics.MAX_DAYS)));
+    }
+
+    /**
+     * Tag of one page of the task list, it changes whenever any task changes and differs between queries,
+     * so a tag of one page never validates another one. Queries getting the same page get the same tag
+     * @param filter filters to apply
+     * @param after id of the last task of the previous page, null for the first page
+     * @param limit requested page size, clamped to 1..MAX_PAGE_SIZE
+     * @return tag of the page or empty if the list isn't held in memory and can't be tagged without reading it,
+     * filtered pages are read from the database and aren't tagged
+     */
+    public Optional<String> getTasksTag(TaskFilter filter, Long after, int limit) {
+        if (!TaskFilter.NONE.equals(filter)) {
+            return Optional.empty();
+        }
+        return taskListView.tag().map(state -> state + "-" + queryTag(filter, cursor(after), pageSize(limit)));
+    }
+
+    /**
+     * Short digest of a normalized page query
+     */
+    static String queryTag(TaskFilter filter, long cursor, int pageSize) {
+        var query = cursor + "&" + pageSize + "&" + filter.completed() + "&" + filter.dueFrom() + "&" + filter.dueTo();
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(query.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Task list query can't be tagged", e);
+        }
+    }
+
+    private static int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    private static long cursor(Long after) {
+        return Optional.ofNullable(after).orElse(0L);
+    }
+
+    /**
+     * Pass every task to the consumer one by one, reading them from a database cursor
+     * @param consumer consumer of the tasks, called in id order
+     */
+    @Transactional(readOnly = true)
+    public void exportTasks(Consumer<TaskDTO> consumer) {
+        try (Stream<TaskDTO> tasks = taskRepository.streamAll()) {
+            tasks.forEach(consumer);
+        }
+    }
+
+    @Transactional
     public Long createTask(TaskDTO task) {
         var converted = convertFromTaskDTO(task);
-        var saved = taskRepository.saveAndFlush(converted);
+        var saved = convertFromTask(taskRepository.saveAndFlush(converted));
+        taskChangeService.record(new TaskChangeDTO(saved.getId(), ChangeType.CREATED, saved));
+        taskListView.put(saved);
+        taskStatistics.created(saved);
+        evictTask(saved.getId());
         return saved.getId();
     }
 
+    /**
+     * Update present fields of the task with a single UPDATE statement.
+     * When the task is held in memory the statement is guarded by the held version and the new state is
+     * the held task with the present fields applied, so the task isn't read back from the database.
+     * An update of the completion state or the due date of a task not held in memory reads the task first
+     * and is guarded the same way, the statistics are moved by its real old state. That read takes the place
+     * of reading the task back, so such an update costs two statements like any update of a task not held in memory
+     * @param taskId id of the task
+     * @param task fields to update
+     * @param expectedVersion version the task must have, null to update any version
+     * @throws TaskVersionMismatchException if the expected version is given and the task has another one or is absent
+     * @throws TaskNotFoundException if the task doesn't exist
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConst.TASK_CACHE_NAME, key = "args[0]")
+    public void updateTask(Long taskId, TaskDTO task, Long expectedVersion) {
+        // the column keeps microseconds, the in-memory copy must have the same value as the row
+        var updatedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        var held = findInMemory(taskId)
+                .or(() -> task.getCompleted() == null && task.getDueDate() == null
+                        ? Optional.empty() : taskRepository.findTaskById(taskId))
+                .filter(found -> found.getVersion() != null)
+                .filter(found -> expectedVersion == null || expectedVersion.equals(found.getVersion()));
+        TaskDTO updated;
+        TaskDTO before = null;
+        if (held.isPresent() && updatePresentFields(taskId, task, held.get().getVersion(), updatedAt) == 1) {
+            before = held.get();
+            updated = applyPresentFields(before, task, updatedAt);
+        } else if (updatePresentFields(taskId, task, expectedVersion, updatedAt) == 1) {
+            updated = taskRepository.findTaskById(taskId)
+                    .orElseThrow(() -> new TaskNotFoundException(taskId));
+            // counted fields are untouched, so the new state stands for the unknown old one
+            before = task.getCompleted() == null && task.getDueDate() == null ? updated : null;
+        } else if (expectedVersion != null) {
+            throw new TaskVersionMismatchException(taskId, expectedVersion);
+        } else {
+            throw new TaskNotFoundException(taskId);
+        }
+        taskChangeService.record(new TaskChangeDTO(taskId, ChangeType.UPDATED, updated));
+        taskListView.put(updated);
+        taskStatistics.updated(before, updated);
+    }
+
+    /**
+     * Create all tasks in one transaction, inserts are sent to the database in JDBC batches
+     * @param tasks tasks to create
+     * @return ids of the created tasks in the order of the given tasks
+     */
+    @Transactional
+    public List<Long> createTasks(List<TaskDTO> tasks) {
+        var saved = taskRepository.saveAll(tasks.stream().map(TaskService::convertFromTaskDTO).toList());
+        taskRepository.flush();
+        var created = saved.stream().map(TaskService::convertFromTask).toList();
+        taskChangeService.recordAll(created.stream()
+                .map(task -> new TaskChangeDTO(task.getId(), ChangeType.CREATED, task)).toList());
+        created.forEach(task -> {
+            taskListView.put(task);
+            taskStatistics.created(task);
+            evictTask(task.getId());
+        });
+        return saved.stream().map(Task::getId).toList();
+    }
+
+    /**
+     * Update all found tasks in one transaction, updates are sent to the database in JDBC batches
+     * @param tasks tasks with ids and fields to update, a task may appear several times and is updated in order
+     * @return ids of the found and updated tasks
+     */
     @Transactional
-    public void updateTask(Long taskId, TaskDTO task) {
-        taskRepository.findById(taskId)
-                .ifPresent(found -> {
-                    updateTaskWithDTO(found, task);
-                    taskRepository.saveAndFlush(found);
-                });
+    public Set<Long> updateTasks(List<TaskDTO> tasks) {
+        Map<Long, Task> found = taskRepository.findAllById(tasks.stream().map(TaskDTO::getId).toList()).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        Map<Long, TaskDTO> before = found.values().stream()
+                .collect(Collectors.toMap(Task::getId, TaskService::convertFromTask));
+        tasks.forEach(task -> Optional.ofNullable(found.get(task.getId()))
+                .ifPresent(to -> updateTaskWithDTO(to, task)));
+        taskRepository.flush();
+        var updated = found.values().stream().map(TaskService::convertFromTask).toList();
+        taskChangeService.recordAll(updated.stream()
+                .map(task -> new TaskChangeDTO(task.getId(), ChangeType.UPDATED, task)).toList());
+        updated.forEach(task -> {
+            taskListView.put(task);
+            taskStatistics.updated(before.get(task.getId()), task);
+            evictTask(task.getId());
+        });
+        return found.keySet();
     }
 
+    /**
+     * Mark the selected open tasks completed with set-based updates
+     * @param selection tasks to complete
+     * @return number of completed tasks
+     */
+    @Transactional
+    public int completeTasks(TaskSelection selection) {
+        return bulkUpdate(selection, selection.dueBefore(),
+                (ids, updatedAt) -> taskRepository.updateCompleted(ids, true, updatedAt),
+                updatedAt -> taskRepository.updateCompletedDueBefore(selection.dueBefore(), true, updatedAt),
+                false, 0);
+    }
+
+    /**
+     * Mark the selected completed tasks open again with set-based updates
+     * @param selection tasks to reopen
+     * @return number of reopened tasks
+     */
+    @Transactional
+    public int reopenTasks(TaskSelection selection) {
+        return bulkUpdate(selection, selection.dueBefore(),
+                (ids, updatedAt) -> taskRepository.updateCompleted(ids, false, updatedAt),
+                updatedAt -> taskRepository.updateCompletedDueBefore(selection.dueBefore(), false, updatedAt),
+                true, 0);
+    }
+
+    /**
+     * Move the due date of the selected open tasks by whole days with set-based updates
+     * @param selection tasks to postpone
+     * @param days number of days to add, negative to bring the due date forward, at most MAX_POSTPONE_DAYS either way
+     * @return number of postponed tasks
+     */
+    @Transactional
+    public int postponeTasks(TaskSelection selection, long days) {
+        return bulkUpdate(selection,
+                selection.dueBefore() == null ? null : selection.dueBefore().plusDays(days),
+                (ids, updatedAt) -> taskRepository.postpone(ids, days, updatedAt),
+                updatedAt -> taskRepository.postponeDueBefore(selection.dueBefore(), days, updatedAt),
+                false, days);
+    }
+
+    /**
+     * Run a set-based update of the selected tasks. A selection by due date only is updated with one statement,
+     * a selection of ids in chunks, so the IN lists stay bounded. The change log is written with INSERT ... SELECT
+     * in the same transaction. Tasks the update skips keep their update time, only the tasks carrying the new
+     * update time are read back, in pages, for the events, the list view and the caches.
+     * Statistics are moved by one GROUP BY of the updated tasks per statement
+     * @param selection tasks to update
+     * @param updatedBefore exclusive due date upper bound of the selected tasks after the update
+     * @param updateIds update of one chunk of ids returning the number of updated rows
+     * @param updateAll update of all tasks due before the bound returning the number of updated rows
+     * @param completedBefore completion state the update selects tasks in
+     * @param daysMoved number of days the update moves the due dates by
+     * @return number of updated rows
+     */
+    private int bulkUpdate(TaskSelection selection, LocalDateTime updatedBefore,
+                           BiFunction<List<Long>, Instant, Integer> updateIds, ToIntFunction<Instant> updateAll,
+                           boolean completedBefore, long daysMoved) {
+        var updatedAt = Instant.now().truncatedTo(ChronoUnit.MICROS);
+        if (selection.ids() == null) {
+            int updated = updateAll.applyAsInt(updatedAt);
+            if (updated == 0) {
+                return 0;
+            }
+            taskChangeService.recordUpdatedDueBefore(updatedBefore, updatedAt);
+            taskStatistics.bulkUpdated(taskRepository.countUpdatedDueBeforeByDueDay(updatedBefore, updatedAt),
+                    completedBefore, daysMoved);
+            long after = 0;
+            List<TaskDTO> page;
+            do {
+                page = taskRepository.findUpdatedDueBefore(updatedBefore, updatedAt, after,
+                        PageRequest.ofSize(BULK_CHUNK_SIZE));
+                bulkUpdated(page);
+                after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+            } while (page.size() == BULK_CHUNK_SIZE);
+            return updated;
+        }
+        var ids = selection.ids().stream().distinct().toList();
+        int updated = 0;
+        for (int from = 0; from < ids.size(); from += BULK_CHUNK_SIZE) {
+            var chunk = ids.subList(from, Math.min(ids.size(), from + BULK_CHUNK_SIZE));
+            if (selection.dueBefore() != null) {
+                chunk = taskRepository.findIdsDueBefore(chunk, selection.dueBefore());
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            int chunkUpdated = updateIds.apply(chunk, updatedAt);
+            if (chunkUpdated == 0) {
+                continue;
+            }
+            updated += chunkUpdated;
+            taskChangeService.recordUpdated(chunk, updatedAt);
+            taskStatistics.bulkUpdated(taskRepository.countUpdatedByDueDay(chunk, updatedAt),
+                    completedBefore, daysMoved);
+            bulkUpdated(taskRepository.findTasksByIds(chunk).stream()
+                    .filter(task -> updatedAt.equals(task.getUpdatedAt()))
+                    .toList());
+        }
+        return updated;
+    }
+
+    private void bulkUpdated(List<TaskDTO> tasks) {
+        taskChangeService.publish(tasks.stream()
+                .map(task -> new TaskChangeDTO(task.getId(), ChangeType.UPDATED, task)).toList());
+        tasks.forEach(task -> {
+            taskListView.put(task);
+            evictTask(task.getId());
+        });
+    }
+
+    /**
+     * Delete all existing tasks with one statement
+     * @param taskIds ids of the tasks to delete
+     * @return ids of the tasks that existed and were deleted
+     */
+    @Transactional
+    public Set<Long> removeByIds(Collection<Long> taskIds) {
+        var existing = new HashSet<>(taskRepository.findExistingIds(taskIds));
+        if (existing.isEmpty()) {
+            return existing;
+        }
+        // the counters move by the rows as they are deleted, the statement runs in the same transaction
+        taskStatistics.deletedAll(taskRepository.countByIdsAndDueDay(existing));
+        taskRepository.deleteAllByIdInBatch(existing);
+        taskChangeService.recordAll(existing.stream()
+                .map(taskId -> new TaskChangeDTO(taskId, ChangeType.DELETED, null)).toList());
+        existing.forEach(taskId -> {
+            taskListView.remove(taskId);
+            evictTask(taskId);
+        });
+        return existing;
+    }
+
+    /**
+     * Get task by id, misses are cached as well for a short time
+     * @param taskId id of the task
+     * @return task or empty if not found
+     */
+    @Cacheable(cacheNames = CacheConst.TASK_CACHE_NAME, key = "args[0]")
     public Optional<TaskDTO> getById(Long taskId) {
-        return taskRepository.findById(taskId).map(TaskService::convertFromTask);
+        return taskRepository.findTaskById(taskId);
     }
 
+    /**
+     * Delete the task, a tombstone is recorded even if the task didn't exist, clients ignore unknown ids.
+     * The deleted row is counted by due day in the same transaction, an absent task isn't deleted or counted
+     * @param taskId id of the task
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConst.TASK_CACHE_NAME, key = "args[0]")
     public void removeById(Long taskId) {
-        taskRepository.deleteById(taskId);
+        var before = taskRepository.countByIdsAndDueDay(List.of(taskId));
+        if (!before.isEmpty()) {
+            taskStatistics.deletedAll(before);
+            taskRepository.deleteAllByIdInBatch(List.of(taskId));
+        }
+        taskChangeService.record(new TaskChangeDTO(taskId, ChangeType.DELETED, null));
+        taskListView.remove(taskId);
+    }
+
+    private int updatePresentFields(Long taskId, TaskDTO task, Long version, Instant updatedAt) {
+        return taskRepository.updatePresentFields(taskId, task.getTitle(), task.getDescription(),
+                task.getDueDate(), task.getCompleted(), version, updatedAt);
     }
 
-    private Task convertFromTaskDTO(TaskDTO taskDTO) {
+    /**
+     * Find the task in the list view or the task cache without going to the database
+     * @param taskId id of the task
+     * @return task or empty if it isn't held in memory
+     */
+    private Optional<TaskDTO> findInMemory(Long taskId) {
+        return taskListView.get(taskId).or(() -> Optional.ofNullable(cacheManager.getCache(CacheConst.TASK_CACHE_NAME))
+                .map(cache -> cache.get(taskId))
+                .map(Cache.ValueWrapper::get)
+                .filter(TaskDTO.class::isInstance)
+                .map(TaskDTO.class::cast));
+    }
+
+    private void evictTask(Long taskId) {
+        Optional.ofNullable(cacheManager.getCache(CacheConst.TASK_CACHE_NAME)).ifPresent(cache -> cache.evict(taskId));
+    }
+
+    static Task convertFromTaskDTO(TaskDTO taskDTO) {
         Task task = new Task();
-        task.setCompleted(taskDTO.getCompleted());
+        task.setCompleted(Boolean.TRUE.equals(taskDTO.getCompleted()));
         task.setDescription(taskDTO.getDescription());
         task.setTitle(taskDTO.getTitle());
         task.setDueDate(taskDTO.getDueDate());
         return task;
     }
 
-    private static TaskDTO convertFromTask(Task task) {
+    static TaskDTO convertFromTask(Task task) {
         TaskDTO taskDTO = new TaskDTO();
         taskDTO.setId(task.getId());
         taskDTO.setTitle(task.getTitle());
         taskDTO.setDescription(task.getDescription());
         taskDTO.setDueDate(task.getDueDate());
         taskDTO.setCompleted(task.getCompleted());
+        taskDTO.setVersion(task.getVersion());
+        taskDTO.setUpdatedAt(task.getUpdatedAt());
         return taskDTO;
     }
 
+    private static TaskDTO applyPresentFields(TaskDTO to, TaskDTO from, Instant updatedAt) {
+        return new TaskDTO(to.getId(),
+                Optional.ofNullable(from.getTitle()).orElse(to.getTitle()),
+                Optional.ofNullable(from.getDescription()).orElse(to.getDescription()),
+                Optional.ofNullable(from.getDueDate()).orElse(to.getDueDate()),
+                Optional.ofNullable(from.getCompleted()).orElse(to.getCompleted()),
+                to.getVersion() + 1,
+                updatedAt);
+    }
+
     private static void updateTaskWithDTO(Task to, TaskDTO from) {
         Optional.ofNullable(from.getTitle()).ifPresent(to::setTitle);
         Optional.ofNullable(from.getDescription()).ifPresent(to::setDescription);
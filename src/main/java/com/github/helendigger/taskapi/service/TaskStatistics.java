@@ -0,0 +1,238 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskStatsProperties;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskStats;
+import com.github.helendigger.taskapi.replica.PrimaryPin;
+import com.github.helendigger.taskapi.repository.TaskDayCount;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Task counts kept in memory, so statistics are served without reading the task table.
+ * Counters are loaded with one GROUP BY query on the first read and then adjusted by every write after it commits.
+ * A write whose previous state isn't known marks the counters stale, they are reconciled with the database
+ * on the next tick, otherwise once per reconcile interval and when the day changes.
+ * Writes of other nodes aren't seen until the next reconcile.
+ */
+@Slf4j
+@Component
+@Profile(ProfileConst.NOT_REACTIVE)
+public class TaskStatistics {
+    public static final int MAX_DAYS = 366;
+
+    private final TaskRepository taskRepository;
+    private final TaskStatsProperties properties;
+    private final Clock clock;
+    private final ReentrantLock reconcileLock = new ReentrantLock();
+    private volatile Counters counters;
+    private volatile boolean stale;
+    private volatile Instant nextReconcile;
+
+    @Autowired
+    public TaskStatistics(TaskRepository taskRepository, TaskStatsProperties properties) {
+        this(taskRepository, properties, Clock.systemDefaultZone());
+    }
+
+    TaskStatistics(TaskRepository taskRepository, TaskStatsProperties properties, Clock clock) {
+        this.taskRepository = taskRepository;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * Current task counts
+     * @param days number of days starting from today to include in the due histogram
+     * @return task counts
+     */
+    public TaskStats getStats(int days) {
+        var current = counters;
+        if (current == null) {
+            current = load();
+        }
+        long total = current.total.sum();
+        long completed = current.completed.sum();
+        var dueByDay = new TreeMap<LocalDate, Long>();
+        current.openByDay.subMap(current.today, current.today.plusDays(days)).forEach((day, count) -> {
+            long open = count.sum();
+            if (open > 0) {
+                dueByDay.put(day, open);
+            }
+        });
+        return new TaskStats(total, completed, total - completed, current.overdue.sum(), dueByDay);
+    }
+
+    /**
+     * Count the created task once the current transaction commits
+     * @param task created task
+     */
+    public void created(TaskDTO task) {
+        afterCommit(current -> current.add(task, 1));
+    }
+
+    /**
+     * Move the updated task between counters once the current transaction commits
+     * @param before state before the update or null if it isn't known
+     * @param after state after the update
+     */
+    public void updated(TaskDTO before, TaskDTO after) {
+        afterCommit(current -> {
+            if (before == null) {
+                stale = true;
+                return;
+            }
+            current.add(before, -1);
+            current.add(after, 1);
+        });
+    }
+
+    /**
+     * Move the tasks written by a bulk update between counters once the current transaction commits.
+     * A bulk update selects its tasks by the state it changes, so the state before follows from the statement:
+     * every task had the given completion state and a due date the given number of days earlier
+     * @param after counts of the updated tasks by their new completion state and due day
+     * @param completedBefore completion state of every updated task before the update
+     * @param daysMoved number of days the due dates were moved by
+     */
+    public void bulkUpdated(List<TaskDayCount> after, boolean completedBefore, long daysMoved) {
+        if (after.isEmpty()) {
+            return;
+        }
+        afterCommit(current -> after.forEach(row -> {
+            current.add(completedBefore, row.dueDay() == null ? null : row.dueDay().minusDays(daysMoved), -row.count());
+            current.add(Boolean.TRUE.equals(row.completed()), row.dueDay(), row.count());
+        }));
+    }
+
+    /**
+     * Stop counting the tasks deleted by one statement once the current transaction commits
+     * @param before counts of the deleted tasks by completion state and due day, read before the deletion
+     */
+    public void deletedAll(List<TaskDayCount> before) {
+        if (before.isEmpty()) {
+            return;
+        }
+        afterCommit(current -> before.forEach(row ->
+                current.add(Boolean.TRUE.equals(row.completed()), row.dueDay(), -row.count())));
+    }
+
+    /**
+     * Reconcile loaded counters when they are stale, the reconcile interval has passed or the day has changed
+     */
+    @Scheduled(fixedDelayString = "${task.stats.tick:PT10S}")
+    public void tick() {
+        var current = counters;
+        if (current == null) {
+            return;
+        }
+        if (stale || !clock.instant().isBefore(nextReconcile) || !LocalDate.now(clock).equals(current.today)) {
+            reconcile();
+        }
+    }
+
+    /**
+     * Replace the counters by counts from the database.
+     * A write committed while the query runs may be lost or counted twice, the next reconcile corrects it.
+     * Reconciles run one at a time under a lock that doesn't pin a virtual thread to its carrier,
+     * writes adjust the current counters meanwhile without taking it
+     * @return new counters
+     */
+    Counters reconcile() {
+        reconcileLock.lock();
+        try {
+            stale = false;
+            var today = LocalDate.now(clock);
+            var loaded = new Counters(today);
+            // counters are adjusted only by later writes, the counts must not miss writes a replica hasn't got yet
+            PrimaryPin.onPrimary(taskRepository::countByCompletedAndDueDay).forEach(row ->
+                    loaded.add(Boolean.TRUE.equals(row.completed()), row.dueDay(), row.count()));
+            counters = loaded;
+            nextReconcile = clock.instant().plus(properties.reconcileInterval());
+            log.debug("Task statistics reconciled, {} tasks", loaded.total.sum());
+            return loaded;
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    /**
+     * Counters loaded by the first read, reads arriving while it loads them wait for it instead of loading again
+     */
+    private Counters load() {
+        reconcileLock.lock();
+        try {
+            var current = counters;
+            return current != null ? current : reconcile();
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private void afterCommit(Consumer<Counters> change) {
+        Runnable apply = () -> {
+            var current = counters;
+            if (current != null) {
+                change.accept(current);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    static final class Counters {
+        private final LocalDate today;
+        private final LongAdder total = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder overdue = new LongAdder();
+        private final ConcurrentSkipListMap<LocalDate, LongAdder> openByDay = new ConcurrentSkipListMap<>();
+
+        private Counters(LocalDate today) {
+            this.today = today;
+        }
+
+        private void add(TaskDTO task, long delta) {
+            add(Boolean.TRUE.equals(task.getCompleted()),
+                    task.getDueDate() == null ? null : task.getDueDate().toLocalDate(), delta);
+        }
+
+        private void add(boolean isCompleted, LocalDate dueDay, long delta) {
+            total.add(delta);
+            if (isCompleted) {
+                completed.add(delta);
+                return;
+            }
+            if (dueDay == null) {
+                return;
+            }
+            openByDay.computeIfAbsent(dueDay, day -> new LongAdder()).add(delta);
+            if (dueDay.isBefore(today)) {
+                overdue.add(delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+-- Moves task ids from the IDENTITY column to the pooled task_seq sequence.
+-- The table is created here when it doesn't exist yet, so the migrations run before hibernate on an empty database,
+-- hibernate adds the indexes and the other tables after them.
+CREATE TABLE IF NOT EXISTS task (
+    id bigint NOT NULL PRIMARY KEY,
+    title varchar(255) NOT NULL,
+    description varchar(1024) NOT NULL,
+    due_date timestamp(6) NOT NULL,
+    completed boolean NOT NULL,
+    version bigint DEFAULT 0 NOT NULL,
+    updated_at timestamp(6) with time zone
+);
+-- The sequence is moved forward past existing ids once, it never goes back after that.
+CREATE SEQUENCE IF NOT EXISTS task_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('task_seq', (SELECT MAX(id) FROM task)) WHERE (SELECT MAX(id) FROM task) >= (SELECT last_value FROM task_seq);
+ALTER TABLE task ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,6 @@
+-- Full-text search over title and description, title words are weighted higher than description words.
+-- The 'simple' configuration doesn't stem, so it works the same for every language of the tasks.
+ALTER TABLE task ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+    setweight(to_tsvector('simple', coalesce(description, '')), 'B')) STORED;
+CREATE INDEX IF NOT EXISTS idx_task_search_vector ON task USING GIN (search_vector);
@@ -0,0 +1,23 @@
+-- Moves change log ids from the IDENTITY column to the pooled task_change_seq sequence, so entries are batched,
+-- and adds the feed position. Changes record the id of their transaction, the ChangeSequencer gives them
+-- positions from task_change_position_seq once no older transaction is running.
+CREATE TABLE IF NOT EXISTS task_change (
+    id bigint NOT NULL PRIMARY KEY,
+    task_id bigint NOT NULL,
+    type varchar(16) NOT NULL,
+    changed_at timestamp(6) with time zone NOT NULL
+);
+CREATE SEQUENCE IF NOT EXISTS task_change_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('task_change_seq', (SELECT MAX(id) FROM task_change))
+    WHERE (SELECT MAX(id) FROM task_change) >= (SELECT last_value FROM task_change_seq);
+ALTER TABLE task_change ALTER COLUMN id DROP IDENTITY IF EXISTS;
+-- Existing changes keep their ids as positions, cursors held by clients stay valid.
+ALTER TABLE task_change ADD COLUMN IF NOT EXISTS txid bigint;
+ALTER TABLE task_change ADD COLUMN IF NOT EXISTS log_position bigint;
+UPDATE task_change SET log_position = id WHERE log_position IS NULL;
+ALTER TABLE task_change ALTER COLUMN txid SET DEFAULT txid_current();
+CREATE SEQUENCE IF NOT EXISTS task_change_position_seq;
+SELECT setval('task_change_position_seq', (SELECT MAX(log_position) FROM task_change))
+    WHERE EXISTS (SELECT 1 FROM task_change);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_task_change_position ON task_change (log_position);
+CREATE INDEX IF NOT EXISTS idx_task_change_unsequenced ON task_change (txid, id) WHERE log_position IS NULL;
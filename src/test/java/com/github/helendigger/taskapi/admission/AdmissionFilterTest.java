@@ -0,0 +1,153 @@
+package com.github.helendigger.taskapi.admission;
+
+import com.github.helendigger.taskapi.configuration.TaskAdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AdmissionFilterTest {
+    static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    AtomicLong now;
+    SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void createClock() {
+        now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testClientOverRateIsRejected() throws Exception {
+        var filter = filter(new TaskAdmissionProperties.Clients(1, 2, 100));
+
+        Assertions.assertEquals(200, get(filter, "a").getStatus());
+        Assertions.assertEquals(200, get(filter, "a").getStatus());
+        var rejected = get(filter, "a");
+        Assertions.assertEquals(200, get(filter, "b").getStatus());
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        Assertions.assertEquals(429, rejected.getStatus());
+        Assertions.assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(200, get(filter, "a").getStatus());
+        Assertions.assertEquals(1, meterRegistry.get("task.admission.rejected").tag("reason", "rate").counter().count());
+    }
+
+    @Test
+    public void testRequestOverConcurrencyLimitIsShed() throws Exception {
+        var filter = filter(new TaskAdmissionProperties.Clients(50, 100, 100));
+        var inner = new MockHttpServletResponse[1];
+        FilterChain reentering = (request, response) -> inner[0] = get(filter, "b");
+
+        filter.doFilter(request("GET", "a"), new MockHttpServletResponse(), reentering);
+
+        Assertions.assertEquals(503, inner[0].getStatus());
+        Assertions.assertEquals("1", inner[0].getHeader(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(200, send(filter, request("POST", "b")).getStatus());
+    }
+
+    @Test
+    public void testLimitGrowsUnderLoadAndBacksOffOnQueueing() {
+        var limit = new AdaptiveLimit(new TaskAdmissionProperties.Limit(10, 2, 20, 2.0, 4, 9, 1.0));
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(limit.tryAcquire());
+        }
+        // a full window at the baseline grows the limit by sqrt(limit)
+        release(limit, 4, 10 * MILLI);
+        Assertions.assertEquals(13, limit.limit());
+
+        // one slow request doesn't move the median
+        release(limit, 3, 10 * MILLI);
+        release(limit, 1, 500 * MILLI);
+        Assertions.assertTrue(limit.limit() >= 13);
+
+        int before = limit.limit();
+        fill(limit, 4);
+        release(limit, 4, 100 * MILLI);
+        Assertions.assertTrue(limit.limit() < before);
+    }
+
+    @Test
+    public void testIdleLimitDoesNotGrow() {
+        var limit = new AdaptiveLimit(new TaskAdmissionProperties.Limit(10, 2, 20, 2.0, 4, 9, 1.0));
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertTrue(limit.tryAcquire());
+            limit.release(0, 10 * MILLI);
+        }
+
+        Assertions.assertEquals(10, limit.limit());
+    }
+
+    @Test
+    public void testClientHeaderIsHonoredOnlyFromTrustedProxies() throws Exception {
+        var filter = filter(new TaskAdmissionProperties.Clients(1, 1, 100));
+        var untrusted = request("GET", "a");
+        untrusted.setRemoteAddr("10.0.0.9");
+        var otherHeader = request("GET", "b");
+        otherHeader.setRemoteAddr("10.0.0.9");
+
+        Assertions.assertEquals(200, send(filter, untrusted).getStatus());
+        // the same address with another header is still the same client
+        Assertions.assertEquals(429, send(filter, otherHeader).getStatus());
+        // behind the trusted proxy the header tells the clients apart
+        Assertions.assertEquals(200, get(filter, "a").getStatus());
+        Assertions.assertEquals(200, get(filter, "b").getStatus());
+    }
+
+    @Test
+    public void testRouteClasses() {
+        Assertions.assertEquals("read.item", AdmissionFilter.routeClass(true, "/tasks/42"));
+        Assertions.assertEquals("read.list", AdmissionFilter.routeClass(true, "/tasks"));
+        Assertions.assertEquals("read.search", AdmissionFilter.routeClass(true, "/tasks/search"));
+        Assertions.assertEquals("write.item", AdmissionFilter.routeClass(false, "/tasks/42"));
+        Assertions.assertEquals("write.bulk", AdmissionFilter.routeClass(false, "/tasks/batch"));
+    }
+
+    private static void fill(AdaptiveLimit limit, int requests) {
+        for (int i = 0; i < requests; i++) {
+            Assertions.assertTrue(limit.tryAcquire());
+        }
+    }
+
+    private static void release(AdaptiveLimit limit, int requests, long latency) {
+        for (int i = 0; i < requests; i++) {
+            limit.release(0, latency);
+        }
+    }
+
+    private AdmissionFilter filter(TaskAdmissionProperties.Clients clients) {
+        var limit = new TaskAdmissionProperties.Limit(1, 1, 1, 2.0, 50, 20, 0.2);
+        var properties = new TaskAdmissionProperties(true, limit, limit, clients, "X-Client-Id",
+                Set.of("127.0.0.1"));
+        return new AdmissionFilter(properties, meterRegistry, now::get);
+    }
+
+    private MockHttpServletResponse get(AdmissionFilter filter, String client) throws IOException, ServletException {
+        return send(filter, request("GET", client));
+    }
+
+    private static MockHttpServletResponse send(AdmissionFilter filter, MockHttpServletRequest request)
+            throws IOException, ServletException {
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String method, String client) {
+        var request = new MockHttpServletRequest(method, "/tasks");
+        request.addHeader("X-Client-Id", client);
+        return request;
+    }
+}
@@ -0,0 +1,122 @@
+package com.github.helendigger.taskapi.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Two nodes sharing a map in place of redis
+ */
+public class TwoLevelCacheTest {
+    static final Duration EVICT_AGAIN_AFTER = Duration.ofSeconds(1);
+
+    ConcurrentMapCache shared;
+    ConcurrentMapCache firstLocal;
+    ConcurrentMapCache secondLocal;
+    TwoLevelCache first;
+    TwoLevelCache second;
+    ScheduledExecutorService scheduler;
+    List<Runnable> scheduled;
+
+    @BeforeEach
+    void createNodes() {
+        scheduled = new ArrayList<>();
+        scheduler = Mockito.mock(ScheduledExecutorService.class);
+        Mockito.when(scheduler.schedule(Mockito.any(Runnable.class), Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    scheduled.add(invocation.getArgument(0));
+                    return null;
+                });
+        shared = new ConcurrentMapCache("task");
+        firstLocal = new ConcurrentMapCache("task");
+        secondLocal = new ConcurrentMapCache("task");
+        var firstBus = new PeerBus();
+        var secondBus = new PeerBus();
+        firstBus.peer = secondBus;
+        secondBus.peer = firstBus;
+        first = new TwoLevelCache(firstLocal, shared, firstBus, scheduler, EVICT_AGAIN_AFTER);
+        second = new TwoLevelCache(secondLocal, shared, secondBus, scheduler, EVICT_AGAIN_AFTER);
+    }
+
+    @Test
+    public void testValueCachedByOneNodeIsSharedWithOthers() {
+        first.put(1L, "task");
+
+        Assertions.assertEquals("task", second.get(1L, String.class));
+        Assertions.assertEquals("task", secondLocal.get("1", String.class));
+        Assertions.assertNull(second.get(2L));
+    }
+
+    @Test
+    public void testEvictionDropsLocalCopiesOfOtherNodes() {
+        first.put(1L, "task");
+        second.get(1L);
+
+        first.evict(1L);
+
+        Assertions.assertNull(shared.get("1"));
+        Assertions.assertNull(secondLocal.get("1"));
+        Assertions.assertNull(second.get(1L));
+    }
+
+    @Test
+    public void testOldValuePutAfterEvictionIsEvictedAgain() {
+        first.put(1L, "old");
+        first.evict(1L);
+        // read from the database before the write committed, put after its eviction
+        second.put(1L, "old");
+        Assertions.assertEquals("old", first.get(1L, String.class));
+
+        Assertions.assertEquals(1, scheduled.size());
+        Mockito.verify(scheduler).schedule(Mockito.any(Runnable.class), Mockito.eq(1000L),
+                Mockito.eq(TimeUnit.MILLISECONDS));
+        scheduled.forEach(Runnable::run);
+
+        Assertions.assertNull(shared.get("1"));
+        Assertions.assertNull(firstLocal.get("1"));
+        Assertions.assertNull(secondLocal.get("1"));
+    }
+
+    @Test
+    public void testUnavailableSharedCacheIsMiss() {
+        var failing = Mockito.mock(Cache.class);
+        Mockito.when(failing.get(Mockito.any())).thenThrow(new RedisConnectionFailureException("down"));
+        Mockito.doThrow(new RedisConnectionFailureException("down")).when(failing).put(Mockito.any(), Mockito.any());
+        var cache = new TwoLevelCache(new ConcurrentMapCache("task"), failing, new PeerBus(), scheduler,
+                EVICT_AGAIN_AFTER);
+
+        Assertions.assertNull(cache.get(1L));
+        cache.put(1L, "task");
+        Assertions.assertEquals("task", cache.get(1L, String.class));
+    }
+
+    private static class PeerBus implements CacheInvalidationBus {
+        private final Map<String, Consumer<String>> listeners = new HashMap<>();
+        private PeerBus peer;
+
+        @Override
+        public void publish(String cacheName, String key) {
+            if (peer != null) {
+                peer.listeners.get(cacheName).accept(key);
+            }
+        }
+
+        @Override
+        public void subscribe(String cacheName, Consumer<String> listener) {
+            listeners.put(cacheName, listener);
+        }
+    }
+}
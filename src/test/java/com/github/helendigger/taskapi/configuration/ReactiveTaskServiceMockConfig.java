@@ -0,0 +1,18 @@
+package com.github.helendigger.taskapi.configuration;
+
+import com.github.helendigger.taskapi.reactive.ReactiveTaskService;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+@TestConfiguration
+public class ReactiveTaskServiceMockConfig {
+    @Bean
+    @Profile("test")
+    @Primary
+    public ReactiveTaskService getReactiveTaskServiceMock() {
+        return Mockito.mock(ReactiveTaskService.class);
+    }
+}
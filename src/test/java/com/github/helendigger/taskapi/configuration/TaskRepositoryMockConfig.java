@@ -1,5 +1,6 @@
 package com.github.helendigger.taskapi.configuration;
 
+import com.github.helendigger.taskapi.repository.TaskChangeRepository;
 import com.github.helendigger.taskapi.repository.TaskRepository;
 import org.mockito.Mockito;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -16,4 +17,10 @@ public class TaskRepositoryMockConfig {
     public TaskRepository getTaskRepositoryMock() {
         return Mockito.mock(TaskRepository.class);
     }
+
+    @Bean
+    @Profile("test")
+    public TaskChangeRepository getTaskChangeRepositoryMock() {
+        return Mockito.mock(TaskChangeRepository.class);
+    }
 }
@@ -1,5 +1,9 @@
 package com.github.helendigger.taskapi.configuration;
 
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.helendigger.taskapi.admission.ClientIdentity;
+import com.github.helendigger.taskapi.service.IdempotencyStore;
+import com.github.helendigger.taskapi.service.TaskChangeService;
 import com.github.helendigger.taskapi.service.TaskService;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.TestConfiguration;
@@ -7,6 +11,9 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 
+import java.time.Duration;
+import java.util.Set;
+
 @TestConfiguration
 public class TaskServiceMockConfig {
     @Bean
@@ -15,4 +22,24 @@ public class TaskServiceMockConfig {
     public TaskService getTaskServiceMock() {
         return Mockito.mock(TaskService.class);
     }
+
+    @Bean
+    @Profile("test")
+    @Primary
+    public TaskChangeService getTaskChangeServiceMock() {
+        return Mockito.mock(TaskChangeService.class);
+    }
+
+    @Bean
+    @Profile("test")
+    public IdempotencyStore getIdempotencyStore() {
+        return new IdempotencyStore(new TaskIdempotencyProperties(1000, Duration.ofMinutes(1), Duration.ofSeconds(1)),
+                JsonMapper.builder().findAndAddModules().build());
+    }
+
+    @Bean
+    @Profile("test")
+    public ClientIdentity getClientIdentity() {
+        return new ClientIdentity("X-Client-Id", Set.of());
+    }
 }
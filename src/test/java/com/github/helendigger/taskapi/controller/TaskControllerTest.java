@@ -1,10 +1,27 @@
 package com.github.helendigger.taskapi.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.github.helendigger.taskapi.configuration.TaskServiceMockConfig;
+import com.github.helendigger.taskapi.configuration.WebFormatConfig;
+import com.github.helendigger.taskapi.dto.BatchItemResult;
+import com.github.helendigger.taskapi.dto.BatchResult;
+import com.github.helendigger.taskapi.dto.BulkUpdateResult;
+import com.github.helendigger.taskapi.dto.SearchResults;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskChanges;
 import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
 import com.github.helendigger.taskapi.dto.TaskId;
+import com.github.helendigger.taskapi.dto.TaskSelection;
+import com.github.helendigger.taskapi.dto.TaskStats;
 import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.exception.TaskNotFoundException;
+import com.github.helendigger.taskapi.exception.TaskVersionMismatchException;
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.service.TaskChangeService;
 import com.github.helendigger.taskapi.service.TaskService;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,21 +29,28 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @WebMvcTest(TaskController.class)
-@ContextConfiguration(classes = TaskServiceMockConfig.class)
+@ContextConfiguration(classes = {TaskServiceMockConfig.class, WebFormatConfig.class})
 @ActiveProfiles("test")
 public class TaskControllerTest {
 
@@ -36,12 +60,15 @@ public class TaskControllerTest {
     @Autowired
     TaskService serviceMock;
 
+    @Autowired
+    TaskChangeService changeServiceMock;
+
     @Autowired
     ObjectMapper mapper;
 
     @BeforeEach
     public void resetMocks() {
-        Mockito.reset(serviceMock);
+        Mockito.reset(serviceMock, changeServiceMock);
     }
 
     @Test
@@ -59,7 +86,8 @@ public class TaskControllerTest {
                 .title("Second task")
                 .description("Second task description").build()));
 
-        Mockito.when(serviceMock.getAllTasks()).thenReturn(expectedItems);
+        Mockito.when(serviceMock.getTasks(TaskFilter.NONE, null, TaskService.DEFAULT_PAGE_SIZE))
+                .thenReturn(expectedItems);
 
         Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
                         .get("/tasks")
@@ -69,20 +97,141 @@ public class TaskControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expectedItems))));
     }
 
+    @Test
+    void getTasksTestNotModified() {
+        var page = new TaskFilter(false, null, null);
+        Mockito.when(serviceMock.getTasksTag(page, 5L, 10)).thenReturn(Optional.of("a-3-q1"));
+        Mockito.when(serviceMock.getTasksTag(page, 15L, 10)).thenReturn(Optional.of("a-3-q2"));
+        Mockito.when(serviceMock.getTasks(page, 15L, 10)).thenReturn(new Tasks(Collections.emptyList()));
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks?completed=false&after=5&limit=10")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"a-3-q1-json\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified()));
+        // the tag of one page doesn't validate another page of the same list state
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks?completed=false&after=15&limit=10")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"a-3-q1-json\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"a-3-q2-json\"")));
+        Mockito.verify(serviceMock, Mockito.never()).getTasks(page, 5L, 10);
+    }
+
     @Test
     void getEmptyTasksTest() {
         var expectedItems = new Tasks(Collections.emptyList());
 
-        Mockito.when(serviceMock.getAllTasks()).thenReturn(expectedItems);
+        Mockito.when(serviceMock.getTasks(TaskFilter.NONE, null, TaskService.DEFAULT_PAGE_SIZE))
+                .thenReturn(expectedItems);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expectedItems))));
+    }
+
+    @Test
+    void getFilteredTasksPageTest() {
+        var dueFrom = LocalDateTime.of(2030, 1, 1, 0, 0);
+        var dueTo = LocalDateTime.of(2030, 2, 1, 0, 0);
+        var expectedItems = new Tasks(List.of(TaskDTO
+                .builder()
+                .id(11L)
+                .dueDate(dueFrom.plusDays(1))
+                .title("Eleventh task")
+                .description("Eleventh task description").build()), 11L);
+
+        Mockito.when(serviceMock.getTasks(new TaskFilter(false, dueFrom, dueTo), 10L, 1))
+                .thenReturn(expectedItems);
 
         Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
                         .get("/tasks")
+                        .param("after", "10")
+                        .param("limit", "1")
+                        .param("completed", "false")
+                        .param("dueFrom", "2030-01-01T00:00:00")
+                        .param("dueTo", "2030-02-01T00:00:00")
                         .contentType(MediaType.APPLICATION_JSON_VALUE))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").value(11))
                 .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expectedItems))));
     }
 
+    @Test
+    void exportTasksTest() throws Exception {
+        var first = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now())
+                .completed(true).build();
+        var second = TaskDTO.builder()
+                .id(2L)
+                .title("Second task")
+                .description("Second task description")
+                .dueDate(LocalDateTime.now()).build();
+
+        Mockito.doAnswer(answer -> {
+            Consumer<TaskDTO> consumer = answer.getArgument(0);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(serviceMock).exportTasks(Mockito.any());
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/tasks/export"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        mapper.writeValueAsString(first) + "\n" + mapper.writeValueAsString(second) + "\n"));
+    }
+
+    @Test
+    void getChangesTest() {
+        var task = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .dueDate(LocalDateTime.now())
+                .completed(true).build();
+        var expected = new TaskChanges(List.of(new TaskChangeDTO(1L, ChangeType.UPDATED, task),
+                new TaskChangeDTO(2L, ChangeType.DELETED, null)), 7L, false);
+
+        Mockito.when(changeServiceMock.getChanges(3L, TaskService.DEFAULT_PAGE_SIZE)).thenReturn(expected);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/changes")
+                        .param("since", "3"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.changes[1].task").doesNotExist())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expected))));
+    }
+
+    @Test
+    void getChangesTestNegativeCursor() {
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/changes")
+                        .param("since", "-1"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.since").exists()));
+        Mockito.verifyNoInteractions(changeServiceMock);
+    }
+
+    @Test
+    void getChangesTestExpiredCursor() {
+        Mockito.when(changeServiceMock.getChanges(3L, TaskService.DEFAULT_PAGE_SIZE))
+                .thenThrow(new ChangeCursorExpiredException(3L));
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/changes")
+                        .param("since", "3"))
+                .andExpect(MockMvcResultMatchers.status().isGone()));
+    }
+
     @Test
     void getByIdTest() {
         var expectedItem = TaskDTO.builder()
@@ -102,6 +251,34 @@ public class TaskControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expectedItem))));
     }
 
+    @Test
+    void getByIdTestNotModified() {
+        var expectedItem = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .dueDate(LocalDateTime.now())
+                .completed(true)
+                .version(3L).build();
+
+        Mockito.when(serviceMock.getById(1L)).thenReturn(Optional.of(expectedItem));
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3-json\"")));
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-json\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified()));
+        // the binary representation of the same version is another body with another tag
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/1")
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3-json\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.ETAG, "\"3-cbor\"")));
+    }
+
     @Test
     void getByIdTestNotFound() {
         Mockito.when(serviceMock.getById(1L)).thenReturn(Optional.empty());
@@ -153,6 +330,105 @@ public class TaskControllerTest {
                 .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(taskId))));
     }
 
+    @Test
+    void createTaskIdempotentTest() throws Exception {
+        var task = TaskDTO
+                .builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .title("First task")
+                .description("First task description").build();
+        var taskId = new TaskId(1L);
+        Mockito.when(serviceMock.createTask(task)).thenReturn(taskId.id(), 2L);
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(MockMvcRequestBuilders
+                            .post("/tasks")
+                            .header(TaskController.IDEMPOTENCY_KEY, "create-first-task")
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(mapper.writeValueAsString(task)))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.LOCATION, "/tasks/1"))
+                    .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(taskId)));
+        }
+        task.setTitle("Other task");
+        mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks")
+                        .header(TaskController.IDEMPOTENCY_KEY, "create-first-task")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(task)))
+                .andExpect(MockMvcResultMatchers.status().isUnprocessableEntity());
+
+        Mockito.verify(serviceMock, Mockito.times(1)).createTask(Mockito.any());
+    }
+
+    @Test
+    void createTaskIdempotencyKeyTooLong() {
+        var task = TaskDTO
+                .builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .title("First task")
+                .description("First task description").build();
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks")
+                        .header(TaskController.IDEMPOTENCY_KEY, "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(task)))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()));
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks/batch")
+                        .header(TaskController.IDEMPOTENCY_KEY, "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(List.of(task))))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()));
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
+    @Test
+    void getByIdCborTest() throws Exception {
+        var task = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now())
+                .completed(false).build();
+        Mockito.when(serviceMock.getById(1L)).thenReturn(Optional.of(task));
+
+        var body = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/1")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(MockMvcResultMatchers.header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Assertions.assertEquals(task, mapper.copyWith(new CBORFactory()).readValue(body, TaskDTO.class));
+    }
+
+    @Test
+    void createTaskSmileTest() throws Exception {
+        var smileMapper = mapper.copyWith(new SmileFactory());
+        var task = TaskDTO
+                .builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .completed(false)
+                .title("First task")
+                .description("First task description").build();
+        var taskId = new TaskId(1L);
+        Mockito.when(serviceMock.createTask(task)).thenReturn(taskId.id());
+
+        var body = mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks")
+                        .contentType(TaskMediaTypes.APPLICATION_SMILE_VALUE)
+                        .accept(TaskMediaTypes.APPLICATION_SMILE_VALUE)
+                        .content(smileMapper.writeValueAsBytes(task)))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.content().contentType(TaskMediaTypes.APPLICATION_SMILE_VALUE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Assertions.assertEquals(taskId, smileMapper.readValue(body, TaskId.class));
+    }
+
     @Test
     void createTaskValidationDateTest() {
         var task = TaskDTO
@@ -200,7 +476,7 @@ public class TaskControllerTest {
             TaskDTO taskFromController = answer.getArgument(1);
             Assertions.assertEquals(task, taskFromController);
             return answer;
-        }).when(serviceMock).updateTask(1L, task);
+        }).when(serviceMock).updateTask(1L, task, null);
 
         Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
                 .put("/tasks/1")
@@ -209,6 +485,37 @@ public class TaskControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isNoContent()));
     }
 
+    @Test
+    void updateTaskPreconditionFailed() {
+        var task = TaskDTO
+                .builder()
+                .completed(true).build();
+
+        Mockito.doThrow(new TaskVersionMismatchException(1L, 2L)).when(serviceMock).updateTask(1L, task, 2L);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                .put("/tasks/1")
+                .header(HttpHeaders.IF_MATCH, "\"2-cbor\"")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(mapper.writeValueAsString(task)))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed()));
+    }
+
+    @Test
+    void updateTaskNotFound() {
+        var task = TaskDTO
+                .builder()
+                .completed(true).build();
+
+        Mockito.doThrow(new TaskNotFoundException(1L)).when(serviceMock).updateTask(1L, task, null);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                .put("/tasks/1")
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(mapper.writeValueAsString(task)))
+                .andExpect(MockMvcResultMatchers.status().isNotFound()));
+    }
+
     @Test
     void updateTaskValidation() {
         var task = TaskDTO
@@ -233,4 +540,169 @@ public class TaskControllerTest {
                 .andExpect(MockMvcResultMatchers.status().isNoContent()));
         Mockito.verify(serviceMock).removeById(1L);
     }
+
+    @Test
+    void createTasksBatchTest() {
+        var valid = TaskDTO
+                .builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .title("First task")
+                .description("First task description").build();
+        var invalid = TaskDTO
+                .builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .title("Fi")
+                .description("Second task description").build();
+        Mockito.when(serviceMock.createTasks(List.of(valid))).thenReturn(List.of(7L));
+
+        var expected = new BatchResult(List.of(
+                BatchItemResult.of(0, 7L, 201),
+                new BatchItemResult(1, null, 400, Map.of("title", "Task title must be between 3 and 255 characters"))));
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(List.of(valid, invalid))))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expected))));
+    }
+
+    @Test
+    void updateTasksBatchTest() {
+        var found = TaskDTO.builder().id(1L).completed(true).build();
+        var missing = TaskDTO.builder().id(2L).completed(true).build();
+        var withoutId = TaskDTO.builder().completed(true).build();
+        Mockito.when(serviceMock.updateTasks(List.of(found, missing))).thenReturn(Set.of(1L));
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .patch("/tasks/batch")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(mapper.writeValueAsString(List.of(found, missing, withoutId))))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[0].status").value(204))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[1].status").value(404))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[2].status").value(400))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[2].errors.id").exists()));
+    }
+
+    @Test
+    void deleteTasksBatchTest() {
+        Mockito.when(serviceMock.removeByIds(List.of(1L, 2L))).thenReturn(Set.of(1L));
+
+        var expected = new BatchResult(List.of(BatchItemResult.of(0, 1L, 204), BatchItemResult.of(1, 2L, 404)));
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/tasks/batch")
+                        .param("ids", "1", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(expected))));
+    }
+
+    @Test
+    void completeTasksTest() {
+        var dueBefore = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Mockito.when(serviceMock.completeTasks(new TaskSelection(null, dueBefore))).thenReturn(3);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks/complete")
+                        .param("dueBefore", "2030-01-01T00:00:00"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(new BulkUpdateResult(3)))));
+    }
+
+    @Test
+    void postponeTasksTest() {
+        Mockito.when(serviceMock.postponeTasks(new TaskSelection(List.of(1L, 2L), null), 7L)).thenReturn(2);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks/postpone")
+                        .param("days", "7")
+                        .param("ids", "1", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(new BulkUpdateResult(2)))));
+    }
+
+    @Test
+    void postponeTasksDaysOutOfRange() {
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks/postpone")
+                        .param("days", String.valueOf(TaskService.MAX_POSTPONE_DAYS + 1))
+                        .param("ids", "1", "2"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.days").exists()));
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
+    @Test
+    void bulkUpdateWithoutSelection() {
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .post("/tasks/reopen"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()));
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
+    @Test
+    void searchTasksTest() {
+        var found = new SearchResults(List.of(TaskDTO.builder()
+                .id(1L)
+                .title("Buy milk")
+                .description("Go to the store")
+                .dueDate(LocalDateTime.now())
+                .completed(false).build()), 1);
+        Mockito.when(serviceMock.searchTasks("milk", 0, 1)).thenReturn(found);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/search")
+                        .param("q", "milk")
+                        .param("limit", "1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(found))));
+    }
+
+    @Test
+    void searchTasksBlankQuery() {
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/search")
+                        .param("q", " "))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()));
+    }
+
+    @Test
+    void dueTasksTest() {
+        var due = new Tasks(List.of(TaskDTO.builder()
+                .id(1L)
+                .title("Pay rent")
+                .description("Transfer the money")
+                .dueDate(LocalDateTime.now().plusMinutes(30))
+                .completed(false).build()));
+        Mockito.when(serviceMock.getDueTasks(Duration.ofHours(1), false, TaskService.DEFAULT_PAGE_SIZE))
+                .thenReturn(due);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/due"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(due))));
+    }
+
+    @Test
+    void dueTasksInvalidWithin() {
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/due")
+                        .param("within", "soon"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()));
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/due")
+                        .param("within", "-PT1H"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest()));
+    }
+
+    @Test
+    void statsTest() {
+        var stats = new TaskStats(3, 1, 2, 1, new TreeMap<>(Map.of(LocalDate.now(), 1L)));
+        Mockito.when(serviceMock.getStats(7)).thenReturn(stats);
+
+        Assertions.assertDoesNotThrow(() -> mockMvc.perform(MockMvcRequestBuilders
+                        .get("/tasks/stats"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().json(mapper.writeValueAsString(stats))));
+    }
 }
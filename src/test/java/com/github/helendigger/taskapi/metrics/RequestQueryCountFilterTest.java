@@ -0,0 +1,66 @@
+package com.github.helendigger.taskapi.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+public class RequestQueryCountFilterTest {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RequestQueryCountFilter filter = new RequestQueryCountFilter(meterRegistry);
+    RequestQueryCounter counter = new RequestQueryCounter();
+
+    @Test
+    public void testStatementsOfRequestAreRecorded() throws Exception {
+        var request = request("/tasks/{id}");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            counter.inspect("select t.id from task t where t.id=?");
+            counter.inspect("select c.id from task_change c");
+        });
+        // statements outside of the request aren't counted
+        counter.inspect("select 1");
+
+        var summary = meterRegistry.get("task.request.queries").tag("uri", "/tasks/{id}").summary();
+        Assertions.assertEquals(1, summary.count());
+        Assertions.assertEquals(2.0, summary.totalAmount());
+    }
+
+    @Test
+    public void testStatementsOfAsyncRequestAreRecordedOnCompletion() throws Exception {
+        var request = request("/tasks/export");
+        request.setAsyncSupported(true);
+        var executor = Executors.newSingleThreadExecutor();
+        var work = new CompletableFuture<Void>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            counter.inspect("select t.id from task t");
+            req.startAsync();
+            executor.execute(RequestQueryCounter.propagate(() -> {
+                counter.inspect("select t.id from task t where t.id>?");
+                counter.inspect("select t.id from task t where t.id>?");
+                work.complete(null);
+            }));
+        });
+        work.get();
+        executor.shutdown();
+        Assertions.assertNull(meterRegistry.find("task.request.queries").summary());
+
+        request.getAsyncContext().complete();
+
+        var summary = meterRegistry.get("task.request.queries").tag("uri", "/tasks/export").summary();
+        Assertions.assertEquals(1, summary.count());
+        Assertions.assertEquals(3.0, summary.totalAmount());
+    }
+
+    private static MockHttpServletRequest request(String pattern) {
+        var request = new MockHttpServletRequest("GET", pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.helendigger.taskapi.reactive;
+
+import com.github.helendigger.taskapi.configuration.ReactiveTaskServiceMockConfig;
+import com.github.helendigger.taskapi.constant.ProfileConst;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.TaskId;
+import com.github.helendigger.taskapi.dto.Tasks;
+import com.github.helendigger.taskapi.service.TaskService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@WebFluxTest(ReactiveTaskController.class)
+@ContextConfiguration(classes = ReactiveTaskServiceMockConfig.class)
+@ActiveProfiles({"test", ProfileConst.REACTIVE})
+public class ReactiveTaskControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    ReactiveTaskService serviceMock;
+
+    @BeforeEach
+    public void resetMocks() {
+        Mockito.reset(serviceMock);
+    }
+
+    @Test
+    void getAllTasksTest() {
+        var expectedItems = new Tasks(List.of(TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now()).build()));
+        Mockito.when(serviceMock.getTasks(TaskFilter.NONE, null, TaskService.DEFAULT_PAGE_SIZE))
+                .thenReturn(Mono.just(expectedItems));
+
+        webTestClient.get().uri("/tasks")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Tasks.class).isEqualTo(expectedItems);
+    }
+
+    @Test
+    void getByIdTest() {
+        var expectedItem = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now())
+                .completed(true).build();
+        Mockito.when(serviceMock.getById(1L)).thenReturn(Mono.just(expectedItem));
+
+        webTestClient.get().uri("/tasks/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TaskDTO.class).isEqualTo(expectedItem);
+    }
+
+    @Test
+    void getByIdTestNotFound() {
+        Mockito.when(serviceMock.getById(1L)).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/tasks/1")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void createTaskTest() {
+        var task = TaskDTO.builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .title("First task")
+                .description("First task description").build();
+        Mockito.when(serviceMock.createTask(task)).thenReturn(Mono.just(1L));
+
+        webTestClient.post().uri("/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(task)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(TaskId.class).isEqualTo(new TaskId(1L));
+    }
+
+    @Test
+    void createTaskValidationTitleTest() {
+        var task = TaskDTO.builder()
+                .dueDate(LocalDateTime.now().plusMinutes(1))
+                .title("Fi")
+                .description("First task description").build();
+
+        webTestClient.post().uri("/tasks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(task)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.title").exists();
+        Mockito.verifyNoInteractions(serviceMock);
+    }
+
+    @Test
+    void exportTasksTest() {
+        var first = TaskDTO.builder().id(1L).title("First task").build();
+        var second = TaskDTO.builder().id(2L).title("Second task").build();
+        Mockito.when(serviceMock.exportTasks()).thenReturn(Flux.just(first, second));
+
+        webTestClient.get().uri("/tasks/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TaskDTO.class).isEqualTo(List.of(first, second));
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.helendigger.taskapi.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+public class ReadYourWritesFilterTest {
+    static final long NOW = 1_000_000L;
+
+    ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5), () -> NOW);
+
+    @Test
+    public void testSuccessfulWriteIsMarked() throws Exception {
+        var response = send(new MockHttpServletRequest("POST", "/tasks"), 201, true);
+
+        Assertions.assertTrue(response.getHeader(HttpHeaders.SET_COOKIE).startsWith(ReadYourWritesFilter.COOKIE_NAME));
+        Assertions.assertEquals(String.valueOf(NOW + 5000), response.getHeader(ReadYourWritesFilter.READ_PRIMARY_UNTIL));
+    }
+
+    @Test
+    public void testWriteWithoutBodyIsMarked() throws Exception {
+        var response = send(new MockHttpServletRequest("DELETE", "/tasks/1"), 204, false);
+
+        Assertions.assertNotNull(response.getHeader(HttpHeaders.SET_COOKIE));
+    }
+
+    @Test
+    public void testFailedWriteIsNotMarked() throws Exception {
+        var response = send(new MockHttpServletRequest("PUT", "/tasks/1"), 409, true);
+
+        Assertions.assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+        Assertions.assertNull(response.getHeader(ReadYourWritesFilter.READ_PRIMARY_UNTIL));
+    }
+
+    @Test
+    public void testCookieOrHeaderPinsReads() throws Exception {
+        var withCookie = new MockHttpServletRequest("GET", "/tasks");
+        withCookie.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1"));
+        var withHeader = new MockHttpServletRequest("GET", "/tasks");
+        withHeader.addHeader(ReadYourWritesFilter.READ_PRIMARY_UNTIL, String.valueOf(NOW + 1000));
+        var expired = new MockHttpServletRequest("GET", "/tasks");
+        expired.addHeader(ReadYourWritesFilter.READ_PRIMARY_UNTIL, String.valueOf(NOW - 1));
+        var tooLong = new MockHttpServletRequest("GET", "/tasks");
+        tooLong.addHeader(ReadYourWritesFilter.READ_PRIMARY_UNTIL, String.valueOf(NOW + 60_000));
+
+        Assertions.assertTrue(isPinned(withCookie));
+        Assertions.assertTrue(isPinned(withHeader));
+        Assertions.assertFalse(isPinned(expired));
+        Assertions.assertFalse(isPinned(tooLong));
+        Assertions.assertFalse(isPinned(new MockHttpServletRequest("GET", "/tasks")));
+        Assertions.assertFalse(PrimaryPin.isPinned());
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request, int status, boolean withBody)
+            throws Exception {
+        var response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            ((HttpServletResponse) res).setStatus(status);
+            if (withBody) {
+                res.getWriter().write("{}");
+            }
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private boolean isPinned(MockHttpServletRequest request) throws Exception {
+        var pinned = new boolean[1];
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> pinned[0] = PrimaryPin.isPinned());
+        return pinned[0];
+    }
+}
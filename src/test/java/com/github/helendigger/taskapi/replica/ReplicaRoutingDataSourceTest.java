@@ -0,0 +1,85 @@
+package com.github.helendigger.taskapi.replica;
+
+import com.github.helendigger.taskapi.configuration.TaskReplicaProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routing between two H2 databases standing in for the primary and a replica, each one knows its own name
+ */
+public class ReplicaRoutingDataSourceTest {
+    ReplicaRoutingDataSource replicas;
+    JdbcTemplate jdbcTemplate;
+    DataSourceTransactionManager transactionManager;
+
+    @BeforeEach
+    void createDatabases() {
+        var primary = database("primary");
+        var replica = database("replica");
+        replicas = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica));
+        var routing = ReplicaRoutingDataSource.splitting(primary, replicas);
+        jdbcTemplate = new JdbcTemplate(routing);
+        transactionManager = new DataSourceTransactionManager(routing);
+    }
+
+    @Test
+    public void testReadOnlyTransactionsGoToHealthyReplica() {
+        Assertions.assertEquals("primary", read(true));
+
+        replicas.setHealthy("replica-0", true);
+
+        Assertions.assertEquals("replica", read(true));
+        Assertions.assertEquals("primary", read(false));
+    }
+
+    @Test
+    public void testPinnedReadsGoToPrimary() {
+        replicas.setHealthy("replica-0", true);
+
+        Assertions.assertEquals("primary", PrimaryPin.onPrimary(() -> read(true)));
+        Assertions.assertFalse(PrimaryPin.isPinned());
+    }
+
+    @Test
+    public void testLaggingReplicaIsTakenOutOfRotation() {
+        var lagging = new ReplicaLagChecker(replicas, properties("SELECT 10"), new SimpleMeterRegistry());
+        var current = new ReplicaLagChecker(replicas, properties("SELECT 0"), new SimpleMeterRegistry());
+
+        current.check();
+        Assertions.assertEquals(List.of("replica-0"), replicas.healthy());
+
+        lagging.check();
+        Assertions.assertTrue(replicas.healthy().isEmpty());
+        Assertions.assertEquals("primary", read(true));
+    }
+
+    private String read(boolean readOnly) {
+        var transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    private static TaskReplicaProperties properties(String lagQuery) {
+        return new TaskReplicaProperties(true, List.of(), Duration.ofSeconds(5), Duration.ofSeconds(5), lagQuery);
+    }
+
+    private static DataSource database(String name) {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        var template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(16))");
+        template.execute("DELETE FROM node");
+        template.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
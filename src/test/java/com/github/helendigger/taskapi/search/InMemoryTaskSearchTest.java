@@ -0,0 +1,104 @@
+package com.github.helendigger.taskapi.search;
+
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import com.github.helendigger.taskapi.service.TaskChangeEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+public class InMemoryTaskSearchTest {
+    TaskRepository taskRepository;
+    InMemoryTaskSearch search;
+    Map<Long, TaskDTO> rows = new HashMap<>();
+
+    @BeforeEach
+    void createSearch() {
+        taskRepository = Mockito.mock(TaskRepository.class);
+        List.of(task(1L, "Buy milk", "Go to the store and buy milk"),
+                task(2L, "Call the store", "Ask whether they have milk"),
+                task(3L, "Write report", "Quarterly report for the store"))
+                .forEach(task -> rows.put(task.getId(), task));
+        Mockito.when(taskRepository.findPage(Mockito.eq(0L), Mockito.any(), Mockito.anyInt())).thenAnswer(answer -> List.copyOf(rows.values()));
+        Mockito.when(taskRepository.findTasksByIds(Mockito.anyCollection())).thenAnswer(answer ->
+                answer.<Collection<Long>>getArgument(0).stream().map(rows::get).filter(Objects::nonNull).toList());
+        search = new InMemoryTaskSearch(taskRepository);
+    }
+
+    @Test
+    public void testTitleMatchesRankHigher() {
+        var results = search.search("milk", 0, 10);
+
+        Assertions.assertEquals(List.of(1L, 2L), ids(results.tasks()));
+        Assertions.assertNull(results.nextOffset());
+    }
+
+    @Test
+    public void testEveryWordMustMatch() {
+        Assertions.assertEquals(List.of(3L), ids(search.search("Store REPORT", 0, 10).tasks()));
+        Assertions.assertTrue(search.search("store unknown", 0, 10).tasks().isEmpty());
+    }
+
+    @Test
+    public void testResultsArePaged() {
+        var first = search.search("store", 0, 2);
+        Assertions.assertEquals(2, first.tasks().size());
+        Assertions.assertEquals(2, first.nextOffset());
+
+        var second = search.search("store", 2, 2);
+        Assertions.assertEquals(1, second.tasks().size());
+        Assertions.assertNull(second.nextOffset());
+    }
+
+    @Test
+    public void testChangesAreIndexed() {
+        search.search("milk", 0, 10);
+
+        var updated = TaskDTO.builder().id(1L).title("Buy bread").description("At the bakery").build();
+        rows.put(1L, updated);
+        rows.remove(2L);
+        search.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(1L, ChangeType.UPDATED, updated)));
+        search.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(2L, ChangeType.DELETED, null)));
+
+        Assertions.assertTrue(search.search("milk", 0, 10).tasks().isEmpty());
+        Assertions.assertEquals(List.of(1L), ids(search.search("bread", 0, 10).tasks()));
+        Mockito.verify(taskRepository, Mockito.times(1)).findPage(Mockito.anyLong(), Mockito.any(),
+                Mockito.anyInt());
+    }
+
+    @Test
+    public void testChangesDuringLoadAreApplied() {
+        var created = task(4L, "Buy milk powder", "For the trip");
+        Mockito.when(taskRepository.findPage(Mockito.eq(0L), Mockito.any(), Mockito.anyInt())).thenAnswer(answer -> {
+                    // committed while the load reads the page, the page doesn't have it yet
+                    rows.put(4L, created);
+                    search.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(4L, ChangeType.CREATED, created)));
+                    return List.of(rows.get(1L), rows.get(2L), rows.get(3L));
+                });
+
+        Assertions.assertEquals(List.of(1L, 4L, 2L), ids(search.search("milk", 0, 10).tasks()));
+    }
+
+    private static List<Long> ids(List<TaskDTO> tasks) {
+        return tasks.stream().map(TaskDTO::getId).toList();
+    }
+
+    private static TaskDTO task(long id, String title, String description) {
+        return TaskDTO.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .dueDate(LocalDateTime.of(2030, 1, 1, 0, 0))
+                .completed(false).build();
+    }
+}
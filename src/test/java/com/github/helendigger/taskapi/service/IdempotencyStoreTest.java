@@ -0,0 +1,112 @@
+package com.github.helendigger.taskapi.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.github.helendigger.taskapi.configuration.TaskIdempotencyProperties;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.exception.IdempotencyKeyReusedException;
+import com.github.helendigger.taskapi.exception.IdempotentRequestInProgressException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdempotencyStoreTest {
+    static final String CLIENT = "10.0.0.1";
+
+    IdempotencyStore store;
+
+    @BeforeEach
+    void createStore() {
+        store = new IdempotencyStore(new TaskIdempotencyProperties(100, Duration.ofMinutes(1), Duration.ofMillis(500)),
+                JsonMapper.builder().findAndAddModules().build());
+    }
+
+    @Test
+    public void testRepeatedRequestGetsFirstResult() {
+        var runs = new AtomicInteger();
+
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", "task", runs::incrementAndGet));
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", "task", runs::incrementAndGet));
+        Assertions.assertEquals(2, store.execute(CLIENT, "createBatch", "key", "task", runs::incrementAndGet));
+        Assertions.assertThrows(IdempotencyKeyReusedException.class,
+                () -> store.execute(CLIENT, "create", "key", "other task", runs::incrementAndGet));
+    }
+
+    @Test
+    public void testKeysAreScopedByClient() {
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", "task", () -> 1));
+        Assertions.assertEquals(2, store.execute("10.0.0.2", "create", "key", "other task", () -> 2));
+    }
+
+    @Test
+    public void testIgnoredIdDoesNotChangeRequest() {
+        var task = TaskDTO.builder().title("Task").description("Task description").build();
+        var retry = TaskDTO.builder().id(5L).title("Task").description("Task description").build();
+        var other = TaskDTO.builder().title("Task").description("Other description").build();
+
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", task, () -> 1));
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", retry, () -> 2));
+        Assertions.assertEquals(1, store.execute(CLIENT, "createBatch", "key", List.of(task), () -> 1));
+        Assertions.assertEquals(1, store.execute(CLIENT, "createBatch", "key", List.of(retry), () -> 2));
+        Assertions.assertThrows(IdempotencyKeyReusedException.class,
+                () -> store.execute(CLIENT, "create", "key", other, () -> 3));
+    }
+
+    @Test
+    public void testConcurrentDuplicateWaitsForFirstResult() throws Exception {
+        var started = new CountDownLatch(1);
+        var finish = new CountDownLatch(1);
+        var first = CompletableFuture.supplyAsync(() -> store.execute(CLIENT, "create", "key", "task", () -> {
+            started.countDown();
+            await(finish);
+            return 1;
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        var duplicate = CompletableFuture.supplyAsync(() -> store.execute(CLIENT, "create", "key", "task", () -> 2));
+        finish.countDown();
+        Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, duplicate.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConcurrentDuplicateGivesUpAfterWaitTimeout() throws Exception {
+        var started = new CountDownLatch(1);
+        var finish = new CountDownLatch(1);
+        var first = CompletableFuture.supplyAsync(() -> store.execute(CLIENT, "create", "key", "task", () -> {
+            started.countDown();
+            await(finish);
+            return 1;
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        Assertions.assertThrows(IdempotentRequestInProgressException.class,
+                () -> store.execute(CLIENT, "create", "key", "task", () -> 2));
+        finish.countDown();
+        Assertions.assertEquals(1, first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", "task", () -> 2));
+    }
+
+    @Test
+    public void testFailedRequestIsRunAgain() {
+        Assertions.assertThrows(IllegalStateException.class, () -> store.execute(CLIENT, "create", "key", "task", () -> {
+            throw new IllegalStateException("database is down");
+        }));
+
+        Assertions.assertEquals(1, store.execute(CLIENT, "create", "key", "task", () -> 1));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
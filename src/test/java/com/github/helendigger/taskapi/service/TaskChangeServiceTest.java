@@ -0,0 +1,111 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskChangeProperties;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.model.Task;
+import com.github.helendigger.taskapi.model.TaskChange;
+import com.github.helendigger.taskapi.repository.ChangeSequencer;
+import com.github.helendigger.taskapi.repository.TaskChangeRepository;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+public class TaskChangeServiceTest {
+    TaskChangeRepository taskChangeRepository;
+    TaskRepository taskRepository;
+    ChangeSequencer changeSequencer;
+    TaskChangeService taskChangeService;
+
+    @BeforeEach
+    void createMocks() {
+        taskChangeRepository = Mockito.mock(TaskChangeRepository.class);
+        taskRepository = Mockito.mock(TaskRepository.class);
+        changeSequencer = Mockito.mock(ChangeSequencer.class);
+        taskChangeService = new TaskChangeService(taskChangeRepository, taskRepository,
+                new TaskChangeProperties(Duration.ofDays(7), Duration.ofSeconds(1)), changeSequencer,
+                Mockito.mock(ApplicationEventPublisher.class));
+    }
+
+    @Test
+    public void testChangesAreMergedPerTask() {
+        Mockito.when(taskChangeRepository.findFirstPosition()).thenReturn(1L);
+        Mockito.when(taskChangeRepository.findPage(3L, PageRequest.ofSize(11)))
+                .thenReturn(List.of(change(4L, 1L, ChangeType.CREATED), change(5L, 2L, ChangeType.UPDATED),
+                        change(6L, 1L, ChangeType.UPDATED), change(7L, 2L, ChangeType.DELETED)));
+        Mockito.when(taskRepository.findTasksByIds(Set.of(1L, 2L)))
+                .thenReturn(List.of(TaskService.convertFromTask(task(1L))));
+
+        var changes = taskChangeService.getChanges(3L, 10);
+
+        Assertions.assertEquals(List.of(
+                new TaskChangeDTO(1L, ChangeType.UPDATED, TaskService.convertFromTask(task(1L))),
+                new TaskChangeDTO(2L, ChangeType.DELETED, null)), changes.changes());
+        Assertions.assertEquals(7L, changes.cursor());
+        Assertions.assertFalse(changes.hasMore());
+    }
+
+    @Test
+    public void testCursorIsKeptWithoutChanges() {
+        Mockito.when(taskChangeRepository.findFirstPosition()).thenReturn(1L);
+        Mockito.when(taskChangeRepository.findPage(Mockito.eq(9L), Mockito.any()))
+                .thenReturn(List.of());
+
+        var changes = taskChangeService.getChanges(9L, 10);
+
+        Assertions.assertTrue(changes.changes().isEmpty());
+        Assertions.assertEquals(9L, changes.cursor());
+    }
+
+    @Test
+    public void testCompactedCursorIsRejected() {
+        Mockito.when(taskChangeRepository.findFirstPosition()).thenReturn(100L);
+
+        Assertions.assertThrows(ChangeCursorExpiredException.class, () -> taskChangeService.getChanges(50L, 10));
+        Mockito.verify(taskChangeRepository, Mockito.never()).findPage(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testNoCursorGetsEndOfLog() {
+        Mockito.when(taskChangeRepository.findLastPosition()).thenReturn(42L);
+
+        var changes = taskChangeService.getChanges(null, 10);
+
+        Assertions.assertTrue(changes.changes().isEmpty());
+        Assertions.assertEquals(42L, changes.cursor());
+    }
+
+    @Test
+    public void testSequencingIsBatched() {
+        taskChangeService.sequence();
+
+        Mockito.verify(changeSequencer).sequence(TaskChangeService.SEQUENCE_BATCH_SIZE);
+    }
+
+    private static TaskChange change(long position, long taskId, ChangeType type) {
+        var change = TaskChange.of(taskId, type);
+        change.setId(position * 10);
+        change.setPosition(position);
+        return change;
+    }
+
+    private static Task task(long id) {
+        var task = new Task();
+        task.setId(id);
+        task.setTitle("Task " + id);
+        task.setDescription("Description " + id);
+        task.setDueDate(LocalDateTime.of(2030, 1, 1, 0, 0));
+        task.setCompleted(false);
+        return task;
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskDueProperties;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.model.Task;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class TaskDueSchedulerTest {
+    static final LocalDateTime START = LocalDateTime.of(2030, 1, 1, 12, 0);
+
+    TaskRepository taskRepository;
+    ApplicationEventPublisher eventPublisher;
+    MutableClock clock;
+    TaskDueScheduler scheduler;
+
+    @BeforeEach
+    void createScheduler() {
+        taskRepository = Mockito.mock(TaskRepository.class);
+        eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+        Mockito.when(taskRepository.findOpenDuePage(Mockito.eq(START), Mockito.eq(0L), Mockito.any(), Mockito.any()))
+                .thenReturn(Stream.of(task(1L, START.plusMinutes(10)), task(2L, START.plusMinutes(20)))
+                        .map(TaskService::convertFromTask).toList());
+        scheduler = new TaskDueScheduler(taskRepository, eventPublisher,
+                new TaskDueProperties(true, Duration.ofHours(1)), new SimpleMeterRegistry(), clock);
+    }
+
+    @Test
+    public void testDueTasksAreFiredOnce() {
+        scheduler.tick();
+        Mockito.verify(eventPublisher, Mockito.never()).publishEvent(Mockito.any(Object.class));
+
+        clock.advance(Duration.ofMinutes(15));
+        scheduler.tick();
+        scheduler.tick();
+
+        var fired = ArgumentCaptor.forClass(TaskDueEvent.class);
+        Mockito.verify(eventPublisher, Mockito.times(1)).publishEvent(fired.capture());
+        Assertions.assertEquals(1L, fired.getValue().task().getId());
+        Assertions.assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    public void testDueTasksAreServedFromMemory() {
+        scheduler.tick();
+
+        var due = scheduler.getDueTasks(Duration.ofMinutes(15), false, 10);
+
+        Assertions.assertEquals(List.of(1L), due.stream().map(TaskDTO::getId).toList());
+        Mockito.verify(taskRepository, Mockito.times(1)).findOpenDuePage(Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void testChangesMoveTasksInAndOut() {
+        scheduler.tick();
+
+        var completed = TaskService.convertFromTask(task(1L, START.plusMinutes(10)));
+        completed.setCompleted(true);
+        scheduler.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(1L, ChangeType.UPDATED, completed)));
+        var created = TaskService.convertFromTask(task(3L, START.plusMinutes(5)));
+        scheduler.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(3L, ChangeType.CREATED, created)));
+        var past = TaskService.convertFromTask(task(4L, START.minusMinutes(5)));
+        scheduler.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(4L, ChangeType.CREATED, past)));
+
+        var due = scheduler.getDueTasks(Duration.ofHours(1), false, 10);
+        Assertions.assertEquals(List.of(3L, 2L), due.stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void testChangesDuringRefillAreNotBlockedAndApplied() {
+        Mockito.when(taskRepository.findOpenDuePage(Mockito.eq(START), Mockito.eq(0L), Mockito.any(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    // committed by another thread while the window is read, the page has the old state of task 1
+                    var completed = TaskService.convertFromTask(task(1L, START.plusMinutes(10)));
+                    completed.setCompleted(true);
+                    var created = TaskService.convertFromTask(task(3L, START.plusMinutes(30)));
+                    CompletableFuture.runAsync(() -> {
+                        scheduler.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(1L, ChangeType.UPDATED,
+                                completed)));
+                        scheduler.onTaskChange(new TaskChangeEvent(new TaskChangeDTO(3L, ChangeType.CREATED,
+                                created)));
+                    }).get(5, TimeUnit.SECONDS);
+                    return Stream.of(task(1L, START.plusMinutes(10)), task(2L, START.plusMinutes(20)))
+                            .map(TaskService::convertFromTask).toList();
+                });
+
+        scheduler.tick();
+
+        var due = scheduler.getDueTasks(Duration.ofHours(1), false, 10);
+        Assertions.assertEquals(List.of(2L, 3L), due.stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    public void testOverdueTasksAreReadFromDatabase() {
+        scheduler.tick();
+
+        scheduler.getDueTasks(Duration.ofMinutes(15), true, 10);
+
+        Mockito.verify(taskRepository, Mockito.times(1)).findOpenDueBefore(Mockito.eq(START.plusMinutes(15)),
+                Mockito.any());
+    }
+
+    private static Task task(long id, LocalDateTime dueDate) {
+        var task = new Task();
+        task.setId(id);
+        task.setTitle("Task " + id);
+        task.setDescription("Description " + id);
+        task.setDueDate(dueDate);
+        task.setCompleted(false);
+        return task;
+    }
+
+    static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
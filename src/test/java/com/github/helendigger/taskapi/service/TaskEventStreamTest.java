@@ -0,0 +1,134 @@
+package com.github.helendigger.taskapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.helendigger.taskapi.configuration.TaskStreamProperties;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskChanges;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.exception.TaskStreamFullException;
+import com.github.helendigger.taskapi.model.ChangeType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TaskEventStreamTest {
+    TaskChangeService taskChangeService;
+    SimpleMeterRegistry meterRegistry;
+    List<Runnable> pending;
+    TaskEventStream stream;
+
+    @BeforeEach
+    void createStream() {
+        taskChangeService = Mockito.mock(TaskChangeService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        pending = new ArrayList<>();
+        // sends run only when the test runs them, so subscribers fall behind on demand
+        stream = new TaskEventStream(taskChangeService, new ObjectMapper(),
+                new TaskStreamProperties(2, 2, 1, Duration.ofMinutes(1)), meterRegistry, pending::add);
+    }
+
+    @Test
+    public void testChangesAreSentToLiveSubscribers() {
+        endOfLog(4L);
+        stream.subscribe(null);
+        Mockito.when(taskChangeService.getChanges(4L, TaskService.MAX_PAGE_SIZE)).thenReturn(page(6L, false, 1L, 2L));
+
+        stream.poll();
+
+        // one drain per subscriber sends all queued events
+        Assertions.assertEquals(1, pending.size());
+        pending.remove(0).run();
+        Assertions.assertEquals(1, stream.subscribers());
+        Mockito.verify(taskChangeService).getChanges(4L, TaskService.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    public void testPollWithoutSubscribersReadsNothing() {
+        stream.poll();
+
+        Mockito.verifyNoInteractions(taskChangeService);
+    }
+
+    @Test
+    public void testSlowSubscriberIsDisconnected() {
+        endOfLog(4L);
+        stream.subscribe(null);
+        Mockito.when(taskChangeService.getChanges(4L, TaskService.MAX_PAGE_SIZE))
+                .thenReturn(page(7L, false, 1L, 2L, 3L));
+
+        stream.poll();
+
+        Assertions.assertEquals(0, stream.subscribers());
+        Assertions.assertEquals(1.0, meterRegistry.counter("task.stream.disconnects", "reason", "slow").count());
+    }
+
+    @Test
+    public void testReconnectReplaysChangeLogThenGoesLive() {
+        endOfLog(9L);
+        Mockito.when(taskChangeService.getChanges(5L, TaskService.MAX_PAGE_SIZE)).thenReturn(page(9L, false, 6L));
+
+        stream.subscribe(5L);
+
+        // nothing is queued during the replay, it is the only scheduled send
+        Assertions.assertEquals(1, pending.size());
+        pending.remove(0).run();
+        Assertions.assertTrue(pending.isEmpty());
+
+        Mockito.when(taskChangeService.getChanges(9L, TaskService.MAX_PAGE_SIZE)).thenReturn(page(10L, false, 7L));
+        stream.poll();
+        Assertions.assertEquals(1, pending.size());
+        Assertions.assertEquals(1, stream.subscribers());
+    }
+
+    @Test
+    public void testReplayBehindLiveCursorGoesOn() {
+        endOfLog(12L);
+        Mockito.when(taskChangeService.getChanges(5L, TaskService.MAX_PAGE_SIZE)).thenReturn(page(9L, false, 6L));
+        Mockito.when(taskChangeService.getChanges(9L, TaskService.MAX_PAGE_SIZE)).thenReturn(page(12L, false, 7L));
+
+        stream.subscribe(5L);
+        pending.remove(0).run();
+        // the poller is at 12, the replay reads the next page before joining
+        Assertions.assertEquals(1, pending.size());
+        pending.remove(0).run();
+
+        Assertions.assertTrue(pending.isEmpty());
+        Mockito.verify(taskChangeService).getChanges(9L, TaskService.MAX_PAGE_SIZE);
+    }
+
+    @Test
+    public void testExpiredReplayIsReset() {
+        Mockito.when(taskChangeService.getChanges(5L, TaskService.MAX_PAGE_SIZE))
+                .thenThrow(new ChangeCursorExpiredException(5L));
+
+        stream.subscribe(5L);
+        pending.remove(0).run();
+
+        Assertions.assertEquals(0, stream.subscribers());
+    }
+
+    @Test
+    public void testSubscribersAreLimited() {
+        endOfLog(0L);
+        stream.subscribe(null);
+        stream.subscribe(null);
+
+        Assertions.assertThrows(TaskStreamFullException.class, () -> stream.subscribe(null));
+    }
+
+    private void endOfLog(long cursor) {
+        Mockito.when(taskChangeService.getChanges(null, 0)).thenReturn(new TaskChanges(List.of(), cursor, false));
+    }
+
+    private static TaskChanges page(long cursor, boolean hasMore, Long... taskIds) {
+        return new TaskChanges(Arrays.stream(taskIds)
+                .map(id -> new TaskChangeDTO(id, ChangeType.DELETED, null)).toList(), cursor, hasMore);
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskIngestionProperties;
+import com.github.helendigger.taskapi.dto.IngestionStatus;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.exception.TaskIngestionUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+public class TaskIngestionTest {
+    TaskService taskService;
+    AtomicLong nextId;
+    TaskIngestion ingestion;
+
+    @BeforeEach
+    void createIngestion() {
+        taskService = Mockito.mock(TaskService.class);
+        nextId = new AtomicLong();
+        Mockito.when(taskService.createTasks(Mockito.anyList())).thenAnswer(invocation -> {
+            List<TaskDTO> tasks = invocation.getArgument(0);
+            if (tasks.stream().anyMatch(task -> "bad".equals(task.getTitle()))) {
+                throw new DataIntegrityViolationException("value too long for column title: bad");
+            }
+            return tasks.stream().map(task -> nextId.incrementAndGet()).toList();
+        });
+        ingestion = ingestion(100);
+    }
+
+    @AfterEach
+    void stopIngestion() {
+        if (ingestion.isRunning()) {
+            ingestion.stop();
+        }
+    }
+
+    @Test
+    public void testQueuedTasksAreWrittenBeforeStop() {
+        ingestion.start();
+        var statuses = IntStream.range(0, 25).mapToObj(i -> ingestion.submit(task("Task " + i))).toList();
+        Assertions.assertTrue(statuses.stream().allMatch(status -> status.state() == IngestionStatus.State.QUEUED));
+
+        ingestion.stop();
+
+        var written = statuses.stream().map(status -> ingestion.status(status.trackingId()).orElseThrow()).toList();
+        Assertions.assertTrue(written.stream().allMatch(status -> status.state() == IngestionStatus.State.CREATED));
+        Assertions.assertEquals(25, written.stream().map(IngestionStatus::taskId).distinct().count());
+        Mockito.verify(taskService, Mockito.atMost(25)).createTasks(Mockito.anyList());
+        Assertions.assertThrows(TaskIngestionUnavailableException.class, () -> ingestion.submit(task("Late task")));
+    }
+
+    @Test
+    public void testBadTaskFailsAlone() {
+        ingestion.start();
+        var good = ingestion.submit(task("Good task"));
+        var bad = ingestion.submit(task("bad"));
+
+        ingestion.stop();
+
+        Assertions.assertEquals(IngestionStatus.State.CREATED, ingestion.status(good.trackingId()).orElseThrow().state());
+        var failed = ingestion.status(bad.trackingId()).orElseThrow();
+        Assertions.assertEquals(IngestionStatus.State.FAILED, failed.state());
+        Assertions.assertEquals(TaskIngestion.CONSTRAINT_VIOLATED, failed.error());
+    }
+
+    @Test
+    public void testTransientFailureIsRetried() {
+        var attempts = new AtomicInteger();
+        Mockito.when(taskService.createTasks(Mockito.anyList())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new CannotCreateTransactionException("Connection refused");
+            }
+            return List.of(1L);
+        });
+        ingestion.start();
+        var status = ingestion.submit(task("Task"));
+
+        ingestion.stop();
+
+        Assertions.assertEquals(IngestionStatus.created(status.trackingId(), 1L),
+                ingestion.status(status.trackingId()).orElseThrow());
+        Assertions.assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testTransientErrorsAreRecognized() {
+        Assertions.assertTrue(TaskIngestion.isTransient(new QueryTimeoutException("timeout")));
+        Assertions.assertTrue(TaskIngestion.isTransient(
+                new IllegalStateException(new SQLTransientConnectionException("pool exhausted"))));
+        Assertions.assertFalse(TaskIngestion.isTransient(new DataIntegrityViolationException("duplicate key")));
+    }
+
+    @Test
+    public void testFullQueueRejectsTasks() throws Exception {
+        var writing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Mockito.when(taskService.createTasks(Mockito.anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(1L);
+        });
+        ingestion = ingestion(1);
+        ingestion.start();
+
+        ingestion.submit(task("Being written"));
+        Assertions.assertTrue(writing.await(5, TimeUnit.SECONDS));
+        var waiting = ingestion.submit(task("Waiting"));
+
+        Assertions.assertThrows(TaskIngestionUnavailableException.class, () -> ingestion.submit(task("Rejected")));
+        Assertions.assertEquals(IngestionStatus.State.QUEUED, ingestion.status(waiting.trackingId()).orElseThrow().state());
+        release.countDown();
+    }
+
+    @Test
+    public void testUnknownTrackingId() {
+        Assertions.assertTrue(ingestion.status("unknown").isEmpty());
+    }
+
+    private TaskIngestion ingestion(int queueCapacity) {
+        var properties = new TaskIngestionProperties(queueCapacity, 10, Duration.ofMillis(50), Duration.ofMinutes(1),
+                1000, Duration.ofSeconds(5), Duration.ofMillis(10), Duration.ofMillis(20));
+        return new TaskIngestion(taskService, properties, new SimpleMeterRegistry());
+    }
+
+    private static TaskDTO task(String title) {
+        return TaskDTO.builder().title(title).description(title + " description").build();
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskViewProperties;
+import com.github.helendigger.taskapi.dto.TaskChangeDTO;
+import com.github.helendigger.taskapi.dto.TaskChanges;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.exception.ChangeCursorExpiredException;
+import com.github.helendigger.taskapi.model.ChangeType;
+import com.github.helendigger.taskapi.model.Task;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TaskListViewTest {
+    TaskRepository taskRepository;
+    TaskChangeService taskChangeService;
+
+    @BeforeEach
+    void createMocks() {
+        taskRepository = Mockito.mock(TaskRepository.class);
+        taskChangeService = Mockito.mock(TaskChangeService.class);
+        Mockito.when(taskChangeService.getChanges(null, 0)).thenReturn(new TaskChanges(List.of(), 5L, false));
+        Mockito.when(taskRepository.findPage(0L, TaskFilter.NONE, TaskListView.LOAD_PAGE_SIZE))
+                .thenReturn(Stream.of(task(1L, false), task(2L, true), task(3L, false))
+                        .map(TaskService::convertFromTask).toList());
+    }
+
+    @Test
+    public void testPageIsLoadedOnce() {
+        var view = view(10);
+
+        var firstPage = view.page(0L, 2).orElseThrow();
+        Assertions.assertEquals(List.of(1L, 2L), ids(firstPage.tasks()));
+        Assertions.assertEquals(2L, firstPage.nextCursor());
+
+        var secondPage = view.page(2L, 2).orElseThrow();
+        Assertions.assertEquals(List.of(3L), ids(secondPage.tasks()));
+        Assertions.assertNull(secondPage.nextCursor());
+
+        Mockito.verify(taskRepository, Mockito.times(1)).findPage(Mockito.anyLong(), Mockito.any(),
+                Mockito.anyInt());
+    }
+
+    @Test
+    public void testWritesArePatchedIn() {
+        var view = view(10);
+        view.page(0L, 10);
+
+        var updated = TaskService.convertFromTask(task(1L, true));
+        view.put(updated);
+        view.put(TaskService.convertFromTask(task(4L, false)));
+        view.remove(2L);
+
+        var page = view.page(0L, 10).orElseThrow();
+        Assertions.assertEquals(List.of(1L, 3L, 4L), ids(page.tasks()));
+        Assertions.assertTrue(page.tasks().get(0).getCompleted());
+        Mockito.verify(taskRepository, Mockito.times(1)).findPage(Mockito.anyLong(), Mockito.any(),
+                Mockito.anyInt());
+    }
+
+    @Test
+    public void testWritesOfOtherNodesAreSynced() {
+        var view = view(10);
+        view.page(0L, 10);
+        var tag = view.tag().orElseThrow();
+        Mockito.when(taskChangeService.getChanges(5L, TaskService.MAX_PAGE_SIZE)).thenReturn(new TaskChanges(List.of(
+                new TaskChangeDTO(1L, ChangeType.UPDATED, TaskService.convertFromTask(task(1L, true))),
+                new TaskChangeDTO(3L, ChangeType.DELETED, null)), 7L, false));
+        Mockito.when(taskChangeService.getChanges(7L, TaskService.MAX_PAGE_SIZE))
+                .thenReturn(new TaskChanges(List.of(), 7L, false));
+
+        view.sync();
+        view.sync();
+
+        var page = view.page(0L, 10).orElseThrow();
+        Assertions.assertEquals(List.of(1L, 2L), ids(page.tasks()));
+        Assertions.assertTrue(view.get(1L).orElseThrow().getCompleted());
+        Assertions.assertNotEquals(tag, view.tag().orElseThrow());
+        Mockito.verify(taskChangeService).getChanges(7L, TaskService.MAX_PAGE_SIZE);
+        Mockito.verify(taskRepository, Mockito.never()).findTaskById(Mockito.anyLong());
+    }
+
+    @Test
+    public void testViewBehindCompactedLogIsLoadedAgain() {
+        var view = view(10);
+        view.page(0L, 10);
+        Mockito.when(taskChangeService.getChanges(5L, TaskService.MAX_PAGE_SIZE))
+                .thenThrow(new ChangeCursorExpiredException(5L));
+
+        view.sync();
+
+        Assertions.assertTrue(view.get(1L).isEmpty());
+        view.page(0L, 10).orElseThrow();
+        Mockito.verify(taskRepository, Mockito.times(2)).findPage(Mockito.anyLong(), Mockito.any(),
+                Mockito.anyInt());
+    }
+
+    @Test
+    public void testViewIsDroppedAboveMaxSize() {
+        var view = view(2);
+        Assertions.assertTrue(view.page(0L, 10).isEmpty());
+    }
+
+    @Test
+    public void testViewIsLoadedInBackground() {
+        var queued = new ArrayList<Runnable>();
+        var view = new TaskListView(taskRepository, taskChangeService, new TaskViewProperties(true, 10),
+                queued::add);
+
+        Assertions.assertTrue(view.page(0L, 10).isEmpty());
+        Assertions.assertTrue(view.page(0L, 10).isEmpty());
+        Assertions.assertEquals(1, queued.size());
+        Mockito.verifyNoInteractions(taskRepository);
+
+        queued.get(0).run();
+        Assertions.assertEquals(List.of(1L, 2L, 3L), ids(view.page(0L, 10).orElseThrow().tasks()));
+    }
+
+    @Test
+    public void testWritesDuringLoadAreKept() {
+        var view = view(10);
+        var updated = TaskService.convertFromTask(task(1L, true));
+        updated.setVersion(1L);
+        Mockito.when(taskRepository.findPage(0L, TaskFilter.NONE, TaskListView.LOAD_PAGE_SIZE))
+                .thenAnswer(invocation -> {
+                    // committed after the page was read, before it is merged
+                    view.put(updated);
+                    view.remove(2L);
+                    return Stream.of(task(1L, false), task(2L, true), task(3L, false))
+                            .map(TaskService::convertFromTask)
+                            .peek(task -> task.setVersion(0L))
+                            .toList();
+                });
+
+        var page = view.page(0L, 10).orElseThrow();
+        Assertions.assertEquals(List.of(1L, 3L), ids(page.tasks()));
+        Assertions.assertTrue(view.get(1L).orElseThrow().getCompleted());
+    }
+
+    @Test
+    public void testDroppedViewIsLoadedAgainOnceItFits() {
+        var view = view(2);
+        Assertions.assertTrue(view.page(0L, 10).isEmpty());
+
+        Mockito.when(taskRepository.count()).thenReturn(2L);
+        view.recheck();
+        Assertions.assertTrue(view.page(0L, 10).isEmpty());
+
+        Mockito.when(taskRepository.count()).thenReturn(1L);
+        Mockito.when(taskRepository.findPage(0L, TaskFilter.NONE, TaskListView.LOAD_PAGE_SIZE))
+                .thenReturn(List.of(TaskService.convertFromTask(task(3L, false))));
+        view.recheck();
+        Assertions.assertEquals(List.of(3L), ids(view.page(0L, 10).orElseThrow().tasks()));
+    }
+
+    @Test
+    public void testDisabledViewIsNotLoaded() {
+        var view = new TaskListView(taskRepository, taskChangeService, new TaskViewProperties(false, 10),
+                Runnable::run);
+        Assertions.assertTrue(view.page(0L, 10).isEmpty());
+        Mockito.verifyNoInteractions(taskRepository);
+    }
+
+    private TaskListView view(int maxSize) {
+        return new TaskListView(taskRepository, taskChangeService, new TaskViewProperties(true, maxSize),
+                Runnable::run);
+    }
+
+    private static Task task(Long id, boolean completed) {
+        var task = new Task();
+        task.setId(id);
+        task.setTitle("Task " + id);
+        task.setDescription("Task description " + id);
+        task.setDueDate(LocalDateTime.now());
+        task.setCompleted(completed);
+        return task;
+    }
+
+    private static List<Long> ids(List<TaskDTO> tasks) {
+        return tasks.stream().map(TaskDTO::getId).toList();
+    }
+}
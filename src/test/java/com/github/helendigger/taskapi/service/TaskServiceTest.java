@@ -1,8 +1,16 @@
 package com.github.helendigger.taskapi.service;
 
 import com.github.helendigger.taskapi.configuration.TaskRepositoryMockConfig;
+import com.github.helendigger.taskapi.constant.CacheConst;
 import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskFilter;
+import com.github.helendigger.taskapi.dto.TaskSelection;
+import com.github.helendigger.taskapi.exception.TaskNotFoundException;
+import com.github.helendigger.taskapi.exception.TaskVersionMismatchException;
+import com.github.helendigger.taskapi.model.ChangeType;
 import com.github.helendigger.taskapi.model.Task;
+import com.github.helendigger.taskapi.repository.TaskChangeRepository;
+import com.github.helendigger.taskapi.repository.TaskDayCount;
 import com.github.helendigger.taskapi.repository.TaskRepository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,13 +19,18 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
-@SpringBootTest(classes = TaskRepositoryMockConfig.class)
+@SpringBootTest(classes = TaskRepositoryMockConfig.class,
+        properties = {"task.view.enabled=false", "task.due.enabled=false"})
 @ActiveProfiles("test")
 public class TaskServiceTest {
     @Autowired
@@ -26,9 +39,16 @@ public class TaskServiceTest {
     @Autowired
     TaskRepository taskRepository;
 
+    @Autowired
+    TaskChangeRepository taskChangeRepository;
+
+    @Autowired
+    CacheManager cacheManager;
+
     @BeforeEach
     void resetMocks() {
-        Mockito.reset(taskRepository);
+        Mockito.reset(taskRepository, taskChangeRepository);
+        cacheManager.getCache(CacheConst.TASK_CACHE_NAME).clear();
     }
 
     @Test
@@ -90,16 +110,81 @@ public class TaskServiceTest {
         var expectedTasks = List.of(firstTask, secondTask);
         var expectedTasksDto = List.of(firstTaskDto, secondTaskDto);
 
-        Mockito.when(taskRepository.getAll()).thenReturn(expectedTasks);
+        Mockito.when(taskRepository.findPage(0L, TaskFilter.NONE, 3))
+                .thenReturn(expectedTasks.stream().map(TaskService::convertFromTask).toList());
 
-        var dtoTasks = taskService.getAllTasks();
+        var dtoTasks = taskService.getTasks(TaskFilter.NONE, null, 2);
         Assertions.assertEquals(expectedTasksDto, dtoTasks.tasks());
+        Assertions.assertNull(dtoTasks.nextCursor());
+    }
+
+    @Test
+    public void testGetTasksNextPage() {
+        var tasks = new ArrayList<Task>();
+        for (long id = 6; id <= 8; id++) {
+            var task = new Task();
+            task.setId(id);
+            task.setTitle("Task " + id);
+            task.setDescription("Task description " + id);
+            task.setDueDate(LocalDateTime.now());
+            task.setCompleted(false);
+            tasks.add(task);
+        }
+        var filter = new TaskFilter(false, null, null);
+
+        Mockito.when(taskRepository.findPage(5L, new TaskFilter(false, null, null), 3))
+                .thenReturn(tasks.stream().map(TaskService::convertFromTask).toList());
+
+        var page = taskService.getTasks(filter, 5L, 2);
+        Assertions.assertEquals(List.of(6L, 7L), page.tasks().stream().map(TaskDTO::getId).toList());
+        Assertions.assertEquals(7L, page.nextCursor());
+    }
+
+    @Test
+    public void testQueryTagDependsOnNormalizedQuery() {
+        var open = new TaskFilter(false, null, null);
+        var tag = TaskService.queryTag(TaskFilter.NONE, 0L, 100);
+
+        Assertions.assertEquals(tag, TaskService.queryTag(new TaskFilter(null, null, null), 0L, 100));
+        Assertions.assertNotEquals(tag, TaskService.queryTag(TaskFilter.NONE, 100L, 100));
+        Assertions.assertNotEquals(tag, TaskService.queryTag(TaskFilter.NONE, 0L, 10));
+        Assertions.assertNotEquals(tag, TaskService.queryTag(open, 0L, 100));
+        Assertions.assertNotEquals(tag, TaskService.queryTag(
+                new TaskFilter(null, LocalDateTime.of(2024, 1, 1, 0, 0), null), 0L, 100));
+    }
+
+    @Test
+    public void getByIdReadsProjection() {
+        var task = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now())
+                .completed(false)
+                .version(0L).build();
+        Mockito.when(taskRepository.findTaskById(1L)).thenReturn(Optional.of(task));
+
+        Assertions.assertEquals(Optional.of(task), taskService.getById(1L));
+        Mockito.verify(taskRepository, Mockito.never()).findById(Mockito.any());
     }
 
     @Test
     public void removeByIdTask() {
+        Mockito.when(taskRepository.countByIdsAndDueDay(List.of(1L)))
+                .thenReturn(List.of(new TaskDayCount(false, LocalDate.now(), 1L)));
+
         taskService.removeById(1L);
-        Mockito.verify(taskRepository, Mockito.times(1)).deleteById(1L);
+        Mockito.verify(taskRepository, Mockito.times(1)).deleteAllByIdInBatch(List.of(1L));
+        Mockito.verify(taskRepository, Mockito.never()).countByCompletedAndDueDay();
+    }
+
+    @Test
+    public void removeByIdAbsentTask() {
+        taskService.removeById(1L);
+
+        // the tombstone is recorded, nothing is deleted
+        Mockito.verify(taskRepository, Mockito.never()).deleteAllByIdInBatch(Mockito.any());
+        Mockito.verify(taskChangeRepository, Mockito.times(1)).save(Mockito.any());
     }
 
     @Test
@@ -114,30 +199,158 @@ public class TaskServiceTest {
         firstTask.setId(1L);
         firstTask.setTitle("First task");
         firstTask.setDescription("First task description");
-        firstTask.setDueDate(LocalDateTime.now());
+        firstTask.setDueDate(taskDto.getDueDate());
         firstTask.setCompleted(true);
+        firstTask.setVersion(1L);
 
-        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.of(firstTask));
-        Mockito.when(taskRepository.saveAndFlush(firstTask)).thenReturn(firstTask);
+        Mockito.when(taskRepository.updatePresentFields(Mockito.eq(1L), Mockito.eq("First task"),
+                Mockito.eq("First task description"), Mockito.eq(taskDto.getDueDate()), Mockito.eq(true),
+                Mockito.eq(1L), Mockito.any())).thenReturn(1);
+        Mockito.when(taskRepository.findTaskById(1L)).thenReturn(Optional.of(TaskService.convertFromTask(firstTask)));
 
-        taskService.updateTask(1L, taskDto);
+        taskService.updateTask(1L, taskDto, null);
 
-        Mockito.verify(taskRepository, Mockito.times(1)).findById(1L);
-        Mockito.verify(taskRepository, Mockito.times(1)).saveAndFlush(firstTask);
+        // the old state is read once before the update, the new one isn't read back
+        Mockito.verify(taskRepository, Mockito.times(1)).findTaskById(1L);
+        Mockito.verify(taskRepository, Mockito.never()).findById(Mockito.any());
+        Mockito.verify(taskRepository, Mockito.never()).saveAndFlush(Mockito.any());
     }
 
     @Test
-    public void updateByIdEmpty() {
-        Mockito.when(taskRepository.findById(1L)).thenReturn(Optional.empty());
+    public void updateByIdWithoutCountedFields() {
+        var taskDto = TaskDTO.builder().title("Renamed task").build();
+        var renamed = TaskDTO.builder().id(1L).title("Renamed task").description("First task description")
+                .dueDate(LocalDateTime.now()).completed(false).version(2L).build();
+
+        Mockito.when(taskRepository.updatePresentFields(Mockito.eq(1L), Mockito.eq("Renamed task"), Mockito.isNull(),
+                Mockito.isNull(), Mockito.isNull(), Mockito.isNull(), Mockito.any())).thenReturn(1);
+        Mockito.when(taskRepository.findTaskById(1L)).thenReturn(Optional.of(renamed));
+
+        taskService.updateTask(1L, taskDto, null);
+
+        // absent completion state and due date don't move the statistics, the task is only read back
+        Mockito.verify(taskRepository, Mockito.times(1)).updatePresentFields(Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(taskRepository, Mockito.times(1)).findTaskById(1L);
+    }
+
+    @Test
+    public void updateByIdHeldInMemory() {
+        var cached = TaskDTO.builder()
+                .id(1L)
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now())
+                .completed(false)
+                .version(3L).build();
+        cacheManager.getCache(CacheConst.TASK_CACHE_NAME).put(1L, cached);
+
+        Mockito.when(taskRepository.updatePresentFields(Mockito.eq(1L), Mockito.isNull(), Mockito.isNull(),
+                Mockito.isNull(), Mockito.eq(true), Mockito.eq(3L), Mockito.any())).thenReturn(1);
+
+        taskService.updateTask(1L, TaskDTO.builder().completed(true).build(), 3L);
+
+        Mockito.verify(taskRepository, Mockito.times(1)).updatePresentFields(Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(taskRepository, Mockito.never()).findTaskById(Mockito.any());
+    }
 
+    @Test
+    public void updateByIdEmpty() {
         var taskDto = TaskDTO.builder()
                 .title("First task")
                 .description("First task description")
                 .dueDate(LocalDateTime.now().plusMinutes(1))
                 .completed(true).build();
-        taskService.updateTask(1L, taskDto);
+        Assertions.assertThrows(TaskNotFoundException.class, () -> taskService.updateTask(1L, taskDto, null));
 
-        Mockito.verify(taskRepository, Mockito.atMostOnce()).findById(1L);
+        Mockito.verify(taskRepository, Mockito.times(1)).findTaskById(1L);
         Mockito.verify(taskRepository, Mockito.never()).saveAndFlush(Mockito.any());
     }
+
+    @Test
+    public void updateByIdVersionMismatch() {
+        var taskDto = TaskDTO.builder().completed(true).build();
+        Assertions.assertThrows(TaskVersionMismatchException.class, () -> taskService.updateTask(1L, taskDto, 1L));
+
+        Mockito.verify(taskRepository, Mockito.times(1)).updatePresentFields(Mockito.eq(1L), Mockito.isNull(),
+                Mockito.isNull(), Mockito.isNull(), Mockito.eq(true), Mockito.eq(1L), Mockito.any());
+    }
+
+    @Test
+    public void createTasksBatch() {
+        var first = TaskDTO.builder()
+                .title("First task")
+                .description("First task description")
+                .dueDate(LocalDateTime.now().plusMinutes(1)).build();
+        var second = TaskDTO.builder()
+                .title("Second task")
+                .description("Second task description")
+                .dueDate(LocalDateTime.now().plusMinutes(1)).build();
+
+        Mockito.when(taskRepository.saveAll(Mockito.<List<Task>>any())).thenAnswer(answer -> {
+            List<Task> tasks = answer.getArgument(0);
+            Assertions.assertEquals(2, tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).setId(i + 1L);
+            }
+            return tasks;
+        });
+
+        Assertions.assertEquals(List.of(1L, 2L), taskService.createTasks(List.of(first, second)));
+        Mockito.verify(taskRepository, Mockito.times(1)).flush();
+    }
+
+    @Test
+    public void removeByIdsBatch() {
+        Mockito.when(taskRepository.findExistingIds(List.of(1L, 2L))).thenReturn(List.of(1L));
+
+        Assertions.assertEquals(Set.of(1L), taskService.removeByIds(List.of(1L, 2L)));
+        Mockito.verify(taskRepository, Mockito.times(1)).deleteAllByIdInBatch(Set.of(1L));
+    }
+
+    @Test
+    public void completeOverdueTasks() {
+        var dueBefore = LocalDateTime.now();
+        Mockito.when(taskRepository.updateCompletedDueBefore(Mockito.eq(dueBefore), Mockito.eq(true), Mockito.any()))
+                .thenReturn(2);
+
+        Assertions.assertEquals(2, taskService.completeTasks(new TaskSelection(null, dueBefore)));
+        Mockito.verify(taskChangeRepository, Mockito.times(1)).insertUpdatedDueBefore(Mockito.eq(dueBefore),
+                Mockito.any(), Mockito.eq(ChangeType.UPDATED), Mockito.any());
+        Mockito.verify(taskRepository, Mockito.times(1)).findUpdatedDueBefore(Mockito.eq(dueBefore), Mockito.any(),
+                Mockito.eq(0L), Mockito.any());
+        Mockito.verify(taskRepository, Mockito.never()).updateCompleted(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.verify(taskRepository, Mockito.never()).findAllById(Mockito.any());
+        Mockito.verify(taskRepository, Mockito.never()).saveAll(Mockito.any());
+    }
+
+    @Test
+    public void skippedTasksAreNotRecorded() {
+        var dueBefore = LocalDateTime.now();
+        Mockito.when(taskRepository.updateCompletedDueBefore(Mockito.eq(dueBefore), Mockito.eq(true), Mockito.any()))
+                .thenReturn(0);
+
+        Assertions.assertEquals(0, taskService.completeTasks(new TaskSelection(null, dueBefore)));
+        Mockito.verify(taskChangeRepository, Mockito.never()).insertUpdatedDueBefore(Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any());
+        Mockito.verify(taskRepository, Mockito.never()).findUpdatedDueBefore(Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void postponeIsChunked() {
+        var ids = new ArrayList<Long>();
+        for (long id = 1; id <= TaskService.BULK_CHUNK_SIZE + 1; id++) {
+            ids.add(id);
+        }
+        Mockito.when(taskRepository.postpone(Mockito.anyCollection(), Mockito.eq(3L), Mockito.any()))
+                .thenAnswer(answer -> answer.<List<Long>>getArgument(0).size());
+
+        Assertions.assertEquals(ids.size(), taskService.postponeTasks(new TaskSelection(ids, null), 3L));
+        Mockito.verify(taskRepository, Mockito.times(2)).postpone(Mockito.anyCollection(), Mockito.eq(3L),
+                Mockito.any());
+        Mockito.verify(taskChangeRepository, Mockito.times(2)).insertUpdated(Mockito.anyCollection(), Mockito.any(),
+                Mockito.eq(ChangeType.UPDATED), Mockito.any());
+    }
 }
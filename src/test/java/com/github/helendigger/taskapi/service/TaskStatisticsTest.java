@@ -0,0 +1,108 @@
+package com.github.helendigger.taskapi.service;
+
+import com.github.helendigger.taskapi.configuration.TaskStatsProperties;
+import com.github.helendigger.taskapi.dto.TaskDTO;
+import com.github.helendigger.taskapi.dto.TaskStats;
+import com.github.helendigger.taskapi.repository.TaskDayCount;
+import com.github.helendigger.taskapi.repository.TaskRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.TreeMap;
+
+public class TaskStatisticsTest {
+    static final LocalDate TODAY = LocalDate.of(2030, 1, 10);
+
+    TaskRepository taskRepository;
+    TaskStatistics statistics;
+
+    @BeforeEach
+    void createStatistics() {
+        taskRepository = Mockito.mock(TaskRepository.class);
+        Mockito.when(taskRepository.countByCompletedAndDueDay()).thenReturn(List.of(
+                new TaskDayCount(true, TODAY.minusDays(3), 4L),
+                new TaskDayCount(false, TODAY.minusDays(2), 2L),
+                new TaskDayCount(false, TODAY, 3L),
+                new TaskDayCount(false, TODAY.plusDays(1), 1L),
+                new TaskDayCount(false, TODAY.plusDays(30), 5L)));
+        var clock = Clock.fixed(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        statistics = new TaskStatistics(taskRepository, new TaskStatsProperties(Duration.ofMinutes(5)), clock);
+    }
+
+    @Test
+    public void testStatsAreLoadedOnce() {
+        var stats = statistics.getStats(7);
+        statistics.getStats(7);
+
+        var dueByDay = new TreeMap<LocalDate, Long>();
+        dueByDay.put(TODAY, 3L);
+        dueByDay.put(TODAY.plusDays(1), 1L);
+        Assertions.assertEquals(new TaskStats(15, 4, 11, 2, dueByDay), stats);
+        Mockito.verify(taskRepository, Mockito.times(1)).countByCompletedAndDueDay();
+    }
+
+    @Test
+    public void testWritesAdjustCounters() {
+        statistics.getStats(7);
+        var open = task(false, TODAY.plusDays(1));
+        var completed = task(true, TODAY.plusDays(1));
+        var overdue = task(false, TODAY.minusDays(2));
+
+        statistics.created(open);
+        statistics.updated(overdue, completed);
+        statistics.deletedAll(List.of(new TaskDayCount(false, TODAY, 1L)));
+        var stats = statistics.getStats(7);
+
+        Assertions.assertEquals(15, stats.total());
+        Assertions.assertEquals(5, stats.completed());
+        Assertions.assertEquals(1, stats.overdue());
+        Assertions.assertEquals(2L, stats.dueByDay().get(TODAY));
+        Assertions.assertEquals(2L, stats.dueByDay().get(TODAY.plusDays(1)));
+        Mockito.verify(taskRepository, Mockito.times(1)).countByCompletedAndDueDay();
+    }
+
+    @Test
+    public void testUnknownChangeIsReconciled() {
+        statistics.getStats(7);
+        statistics.tick();
+        Mockito.verify(taskRepository, Mockito.times(1)).countByCompletedAndDueDay();
+
+        statistics.updated(null, task(true, TODAY));
+        statistics.tick();
+
+        Mockito.verify(taskRepository, Mockito.times(2)).countByCompletedAndDueDay();
+    }
+
+    @Test
+    public void testBulkWritesMoveCounters() {
+        statistics.getStats(7);
+
+        // two overdue tasks postponed by three days, one task due today completed
+        statistics.bulkUpdated(List.of(new TaskDayCount(false, TODAY.plusDays(1), 2L)), false, 3);
+        statistics.bulkUpdated(List.of(new TaskDayCount(true, TODAY, 1L)), false, 0);
+        statistics.deletedAll(List.of(new TaskDayCount(false, TODAY.plusDays(30), 5L)));
+        statistics.tick();
+        var stats = statistics.getStats(7);
+
+        Assertions.assertEquals(10, stats.total());
+        Assertions.assertEquals(5, stats.completed());
+        Assertions.assertEquals(0, stats.overdue());
+        Assertions.assertEquals(2L, stats.dueByDay().get(TODAY));
+        Assertions.assertEquals(3L, stats.dueByDay().get(TODAY.plusDays(1)));
+        Mockito.verify(taskRepository, Mockito.times(1)).countByCompletedAndDueDay();
+    }
+
+    private static TaskDTO task(boolean completed, LocalDate dueDay) {
+        return TaskDTO.builder()
+                .completed(completed)
+                .dueDate(dueDay.atTime(9, 0))
+                .build();
+    }
+}